@@ -0,0 +1,49 @@
+package com.uniandes.jcbages10.benchmark;
+
+public abstract class Benchmark implements IBenchmark {
+
+    /**
+     * The name of the benchmark, including its parameters
+     */
+    private final String name;
+
+    /**
+     * Constructor for initializing the benchmark name
+     * @param name The name of the benchmark
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the name of the benchmark
+     * @return The name of the benchmark
+     */
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Called once before warmup, does nothing by default
+     */
+    @Override
+    public void setup() throws Exception {
+    }
+
+    /**
+     * Called before every measured invocation, out of the timed section,
+     * does nothing by default
+     */
+    @Override
+    public void prepare() throws Exception {
+    }
+
+    /**
+     * Called once after measurement, does nothing by default
+     */
+    @Override
+    public void teardown() throws Exception {
+    }
+
+}
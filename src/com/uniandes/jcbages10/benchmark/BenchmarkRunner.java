@@ -0,0 +1,187 @@
+package com.uniandes.jcbages10.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BenchmarkRunner {
+
+    /**
+     * Default warmup time per benchmark in milliseconds
+     */
+    private final static long DEFAULT_WARMUP_TIME = 2000;
+
+    /**
+     * Default measurement time per benchmark in milliseconds
+     */
+    private final static long DEFAULT_MEASUREMENT_TIME = 5000;
+
+    /**
+     * Default routing buffer sizes (1k -> 1M messages)
+     */
+    private final static int[] DEFAULT_ROUTING_SIZES = {1000, 10000, 100000, 1000000};
+
+    /**
+     * Warmup time per benchmark in milliseconds
+     */
+    private long warmupTime;
+
+    /**
+     * Measurement time per benchmark in milliseconds
+     */
+    private long measurementTime;
+
+    /**
+     * Only benchmarks whose name contains this string are run
+     */
+    private String filter;
+
+    /**
+     * Routing buffer sizes to benchmark the handshake with
+     */
+    private int[] routingSizes;
+
+    /**
+     * Run the benchmark suite, accepted options are
+     * --warmup=ms --measure=ms --filter=text --routing-sizes=n1,n2,...
+     * @param args The command line options
+     */
+    public static void main(String... args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(args);
+        runner.runAll(suite(runner.routingSizes));
+        System.exit(0);
+    }
+
+    /**
+     * Build the list with every benchmark of the suite
+     * @param routingSizes The routing buffer sizes for the handshake benchmarks
+     * @return The benchmarks of the suite
+     */
+    private static List<IBenchmark> suite(int[] routingSizes) {
+        List<IBenchmark> benchmarks = new ArrayList<>();
+        benchmarks.addAll(TupleBenchmarks.all());
+        benchmarks.addAll(TupleSpaceBenchmarks.all());
+        benchmarks.addAll(RoutingBenchmarks.all(routingSizes));
+        return benchmarks;
+    }
+
+    /**
+     * Constructor for initializing the runner options with the given args
+     * @param args The command line options
+     */
+    private BenchmarkRunner(String... args) {
+        this.warmupTime = DEFAULT_WARMUP_TIME;
+        this.measurementTime = DEFAULT_MEASUREMENT_TIME;
+        this.filter = "";
+        this.routingSizes = DEFAULT_ROUTING_SIZES;
+
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            String value = option.length > 1 ? option[1] : "";
+            switch (option[0]) {
+                case "--warmup":
+                    this.warmupTime = Long.parseLong(value);
+                    break;
+                case "--measure":
+                    this.measurementTime = Long.parseLong(value);
+                    break;
+                case "--filter":
+                    this.filter = value;
+                    break;
+                case "--routing-sizes":
+                    this.routingSizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    /**
+     * Run every benchmark matching the filter and print its results
+     * @param benchmarks The benchmarks to run
+     */
+    private void runAll(List<IBenchmark> benchmarks) throws Exception {
+        System.out.println(String.format("%-70s %14s %12s %12s %12s",
+            "benchmark", "ops/s", "avg ns/op", "p50 ns/op", "p99 ns/op"));
+        for (IBenchmark benchmark : benchmarks) {
+            if (benchmark.name().contains(this.filter)) {
+                System.out.println(run(benchmark));
+            }
+        }
+    }
+
+    /**
+     * Warmup & measure the given benchmark, every invocation is timed on its own
+     * so the prepare step is left out of the measurement
+     * @param benchmark The benchmark to run
+     * @return The formatted results of the benchmark
+     */
+    private String run(IBenchmark benchmark) throws Exception {
+        benchmark.setup();
+        try {
+            iterate(benchmark, this.warmupTime, null);
+            long[] samples = new long[1024];
+            long[] result = iterate(benchmark, this.measurementTime, samples);
+            return format(benchmark.name(), result);
+        } finally {
+            benchmark.teardown();
+        }
+    }
+
+    /**
+     * Invoke the benchmark until the given time passes
+     * @param benchmark The benchmark to invoke
+     * @param time The time to keep invoking in milliseconds
+     * @param samples The buffer for per operation latencies, none for warmup
+     * @return The total operations, total time & sorted per operation latencies
+     */
+    private long[] iterate(IBenchmark benchmark, long time, long[] samples) throws Exception {
+        long operations = 0;
+        long elapsed = 0;
+        int numberOfSamples = 0;
+        long deadline = System.nanoTime() + time * 1000000L;
+        while (System.nanoTime() < deadline) {
+            benchmark.prepare();
+            long start = System.nanoTime();
+            int performed = benchmark.run();
+            long duration = System.nanoTime() - start;
+
+            operations += performed;
+            elapsed += duration;
+            if (samples != null) {
+                if (numberOfSamples == samples.length) {
+                    samples = Arrays.copyOf(samples, samples.length * 2);
+                }
+                samples[numberOfSamples++] = duration / Math.max(1, performed);
+            }
+        }
+
+        long[] result = new long[2 + numberOfSamples];
+        result[0] = operations;
+        result[1] = elapsed;
+        if (samples != null) {
+            Arrays.sort(samples, 0, numberOfSamples);
+            System.arraycopy(samples, 0, result, 2, numberOfSamples);
+        }
+        return result;
+    }
+
+    /**
+     * Format the results of a benchmark as a table row
+     * @param name The name of the benchmark
+     * @param result The total operations, total time & sorted latencies
+     * @return The formatted row
+     */
+    private String format(String name, long[] result) {
+        long operations = result[0];
+        long elapsed = Math.max(1, result[1]);
+        int numberOfSamples = result.length - 2;
+        double throughput = operations * 1e9 / elapsed;
+        double average = (double) elapsed / Math.max(1, operations);
+        long p50 = numberOfSamples == 0 ? 0 : result[2 + (int) (numberOfSamples * 0.50)];
+        long p99 = numberOfSamples == 0 ? 0 : result[2 + (int) (numberOfSamples * 0.99)];
+        return String.format("%-70s %14.1f %12.1f %12d %12d", name, throughput, average, p50, p99);
+    }
+
+}
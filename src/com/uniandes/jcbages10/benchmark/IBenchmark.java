@@ -0,0 +1,15 @@
+package com.uniandes.jcbages10.benchmark;
+
+public interface IBenchmark {
+
+    String name();
+
+    void setup() throws Exception;
+
+    void prepare() throws Exception;
+
+    int run() throws Exception;
+
+    void teardown() throws Exception;
+
+}
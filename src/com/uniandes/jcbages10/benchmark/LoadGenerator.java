@@ -0,0 +1,541 @@
+package com.uniandes.jcbages10.benchmark;
+
+import com.uniandes.jcbages10.metrics.Histogram;
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.tuplespace.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadGenerator {
+
+    /**
+     * Default number of threads calling out
+     */
+    private final static int DEFAULT_PRODUCERS = 2;
+
+    /**
+     * Default number of threads calling in
+     */
+    private final static int DEFAULT_CONSUMERS = 2;
+
+    /**
+     * Default number of threads calling read
+     */
+    private final static int DEFAULT_READERS = 1;
+
+    /**
+     * Default number of fields of the tuples, an Integer key followed by String payloads
+     */
+    private final static int DEFAULT_ARITY = 3;
+
+    /**
+     * Default number of characters of every String payload
+     */
+    private final static int DEFAULT_SIZE = 32;
+
+    /**
+     * Default number of distinct keys, actual templates look up a random one
+     */
+    private final static int DEFAULT_KEYS = 1000;
+
+    /**
+     * Default ratio of in & read calls with an all formal template instead of an actual key
+     */
+    private final static double DEFAULT_FORMAL_RATIO = 0.1;
+
+    /**
+     * Default leasing of the tuples in milliseconds from their creation, 0 if they never expire
+     */
+    private final static long DEFAULT_LEASE = 60000;
+
+    /**
+     * Default ratio of the capacity kept filled with live tuples
+     */
+    private final static double DEFAULT_OCCUPANCY = 0.5;
+
+    /**
+     * Default size of the tuples container
+     */
+    private final static int DEFAULT_CAPACITY = 100000;
+
+    /**
+     * Default duration of the run in seconds
+     */
+    private final static int DEFAULT_DURATION = 30;
+
+    /**
+     * Default time between report lines in seconds
+     */
+    private final static int DEFAULT_INTERVAL = 5;
+
+    /**
+     * Time between samples of the live tuples, used to hold the target occupancy
+     */
+    private final static long SAMPLE_MILLIS = 100;
+
+    /**
+     * Time a producer waits when the space is at the target occupancy
+     */
+    private final static long THROTTLE_NANOS = 100000;
+
+    /**
+     * Number of distinct payloads, reused so building tuples costs little to the producers
+     */
+    private final static int PAYLOADS = 64;
+
+    /**
+     * Number of tuples per outMany call while filling the space
+     */
+    private final static int FILL_BATCH_SIZE = 1000;
+
+    /**
+     * Number of threads calling out
+     */
+    private int producers;
+
+    /**
+     * Number of threads calling in
+     */
+    private int consumers;
+
+    /**
+     * Number of threads calling read
+     */
+    private int readers;
+
+    /**
+     * Number of fields of the tuples, an Integer key followed by String payloads
+     */
+    private int arity;
+
+    /**
+     * Number of characters of every String payload
+     */
+    private int size;
+
+    /**
+     * Number of distinct keys, actual templates look up a random one
+     */
+    private int keys;
+
+    /**
+     * Ratio of in & read calls with an all formal template instead of an actual key
+     */
+    private double formalRatio;
+
+    /**
+     * Leasing of the tuples in milliseconds from their creation, 0 if they never expire
+     */
+    private long lease;
+
+    /**
+     * Ratio of the capacity kept filled with live tuples
+     */
+    private double occupancy;
+
+    /**
+     * Size of the tuples container
+     */
+    private int capacity;
+
+    /**
+     * Duration of the run in seconds
+     */
+    private int duration;
+
+    /**
+     * Time between report lines in seconds
+     */
+    private int interval;
+
+    /**
+     * The space under load
+     */
+    private ITupleSpace tupleSpace;
+
+    /**
+     * Reused payloads of the tuples
+     */
+    private String[] payloads;
+
+    /**
+     * Approximate number of live tuples, sampled then adjusted by producers & consumers
+     */
+    private final AtomicLong live;
+
+    /**
+     * Whether or not the workers keep calling the space
+     */
+    private volatile boolean running;
+
+    /**
+     * Time in nanoseconds when the run ends
+     */
+    private long deadline;
+
+    /**
+     * Latency in nanoseconds of every out, in & read call, measured by the caller
+     */
+    private final Histogram outLatency;
+    private final Histogram inLatency;
+    private final Histogram readLatency;
+
+    /**
+     * Number of calls rejected because the space reached its max unresolved calls
+     */
+    private final LongAdder rejectedCalls;
+
+    /**
+     * Number of in & read calls still unresolved when the run ended
+     */
+    private final LongAdder unresolvedCalls;
+
+    /**
+     * Drive a space with producers, consumers & readers for a while reporting throughput,
+     * latency, evictions & the size of the routing maps every interval, then the totals.
+     * Accepted options are --producers=n --consumers=n --readers=n --arity=n --size=n
+     * --keys=n --formal-ratio=r --lease=ms --occupancy=r --capacity=n --duration=s --interval=s
+     * @param args The command line options
+     */
+    public static void main(String... args) throws Exception {
+        LoadGenerator generator = new LoadGenerator(args);
+        generator.run();
+        System.exit(0);
+    }
+
+    /**
+     * Constructor for initializing the load options with the given args
+     * @param args The command line options
+     */
+    private LoadGenerator(String... args) {
+        this.producers = DEFAULT_PRODUCERS;
+        this.consumers = DEFAULT_CONSUMERS;
+        this.readers = DEFAULT_READERS;
+        this.arity = DEFAULT_ARITY;
+        this.size = DEFAULT_SIZE;
+        this.keys = DEFAULT_KEYS;
+        this.formalRatio = DEFAULT_FORMAL_RATIO;
+        this.lease = DEFAULT_LEASE;
+        this.occupancy = DEFAULT_OCCUPANCY;
+        this.capacity = DEFAULT_CAPACITY;
+        this.duration = DEFAULT_DURATION;
+        this.interval = DEFAULT_INTERVAL;
+
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            String value = option.length > 1 ? option[1] : "0";
+            switch (option[0]) {
+                case "--producers":
+                    this.producers = Integer.parseInt(value);
+                    break;
+                case "--consumers":
+                    this.consumers = Integer.parseInt(value);
+                    break;
+                case "--readers":
+                    this.readers = Integer.parseInt(value);
+                    break;
+                case "--arity":
+                    this.arity = Integer.parseInt(value);
+                    break;
+                case "--size":
+                    this.size = Integer.parseInt(value);
+                    break;
+                case "--keys":
+                    this.keys = Integer.parseInt(value);
+                    break;
+                case "--formal-ratio":
+                    this.formalRatio = Double.parseDouble(value);
+                    break;
+                case "--lease":
+                    this.lease = Long.parseLong(value);
+                    break;
+                case "--occupancy":
+                    this.occupancy = Double.parseDouble(value);
+                    break;
+                case "--capacity":
+                    this.capacity = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    this.duration = Integer.parseInt(value);
+                    break;
+                case "--interval":
+                    this.interval = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (this.producers < 1 || this.consumers < 0 || this.readers < 0) {
+            throw new IllegalArgumentException("At least one producer is needed");
+        }
+        if (this.arity < 1 || this.size < 0 || this.keys < 1 || this.capacity < 1) {
+            throw new IllegalArgumentException("Arity, keys & capacity must be positive");
+        }
+        if (this.formalRatio < 0 || this.formalRatio > 1 || this.occupancy < 0 || this.occupancy > 1) {
+            throw new IllegalArgumentException("Ratios must be within [0, 1]");
+        }
+        if (this.duration < 1 || this.interval < 1) {
+            throw new IllegalArgumentException("Duration & interval must be positive");
+        }
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        this.outLatency = metrics.histogram("out.latency.nanos");
+        this.inLatency = metrics.histogram("in.latency.nanos");
+        this.readLatency = metrics.histogram("read.latency.nanos");
+        this.live = new AtomicLong();
+        this.rejectedCalls = new LongAdder();
+        this.unresolvedCalls = new LongAdder();
+    }
+
+    /**
+     * Fill the space up to the target occupancy, run the workers until the deadline
+     * printing a report line every interval, then print the totals
+     */
+    private void run() throws InterruptedException {
+        this.tupleSpace = TupleSpaceFactory.create("load-generator", new TupleSpaceConfiguration()
+            .withCapacity(this.capacity)
+            .withMaxCalls(Math.max(1, this.consumers + this.readers)));
+        this.payloads = new String[PAYLOADS];
+        for (int i = 0; i < PAYLOADS; i++) {
+            this.payloads[i] = payload(i);
+        }
+
+        long target = (long) (this.capacity * this.occupancy);
+        for (long filled = 0; filled < target; filled += FILL_BATCH_SIZE) {
+            ITuple[] tuples = new ITuple[(int) Math.min(FILL_BATCH_SIZE, target - filled)];
+            for (int i = 0; i < tuples.length; i++) {
+                tuples[i] = tuple();
+            }
+            this.tupleSpace.outMany(tuples);
+        }
+        this.live.set(target);
+
+        long start = System.nanoTime();
+        this.deadline = start + TimeUnit.SECONDS.toNanos(this.duration);
+        this.running = true;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < this.producers; i++) {
+            workers.add(new Thread(() -> produce(target), "load-producer-" + i));
+        }
+        for (int i = 0; i < this.consumers; i++) {
+            workers.add(new Thread(() -> retrieve(true), "load-consumer-" + i));
+        }
+        for (int i = 0; i < this.readers; i++) {
+            workers.add(new Thread(() -> retrieve(false), "load-reader-" + i));
+        }
+        workers.forEach(Thread::start);
+
+        System.out.println(String.format("%6s %10s %10s %10s %10s %10s %10s %10s %10s %8s",
+            "Time", "Out/s", "In/s", "Read/s", "Resident", "Evicted", "Messages", "Tombstones", "Queries", "Heap MB"));
+        ITuple liveTemplate = formalTemplate();
+        long[] lastCounts = new long[3];
+        long nextReport = start + TimeUnit.SECONDS.toNanos(this.interval);
+        while (System.nanoTime() < this.deadline) {
+            Thread.sleep(SAMPLE_MILLIS);
+            this.live.set(this.tupleSpace.count(liveTemplate));
+            if (System.nanoTime() >= nextReport) {
+                report(start, lastCounts);
+                nextReport += TimeUnit.SECONDS.toNanos(this.interval);
+            }
+        }
+
+        this.running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        }
+        summary(System.nanoTime() - start);
+        TupleSpaceFactory.destroy(this.tupleSpace.name());
+    }
+
+    /**
+     * Producer loop, out a random tuple whenever the space is below the target occupancy
+     * @param target The target number of live tuples
+     */
+    private void produce(long target) {
+        while (this.running) {
+            if (this.live.get() >= target && target > 0) {
+                LockSupport.parkNanos(THROTTLE_NANOS);
+                continue;
+            }
+            ITuple tuple = tuple();
+            long start = System.nanoTime();
+            this.tupleSpace.out(tuple);
+            this.outLatency.record(System.nanoTime() - start);
+            this.live.incrementAndGet();
+        }
+    }
+
+    /**
+     * Consumer or reader loop, in or read a random template & wait for its match,
+     * calls still unresolved at the deadline are left behind
+     * @param remove Whether or not to call in instead of read
+     */
+    private void retrieve(boolean remove) {
+        Histogram latency = remove ? this.inLatency : this.readLatency;
+        while (this.running) {
+            ITuple template = ThreadLocalRandom.current().nextDouble() < this.formalRatio
+                ? formalTemplate()
+                : actualTemplate(ThreadLocalRandom.current().nextInt(this.keys));
+            long start = System.nanoTime();
+            Future<ITuple> result;
+            try {
+                result = remove ? this.tupleSpace.in(template) : this.tupleSpace.read(template);
+            } catch (CancellationException e) {
+                this.rejectedCalls.increment();
+                LockSupport.parkNanos(THROTTLE_NANOS);
+                continue;
+            }
+
+            try {
+                result.get(Math.max(1, this.deadline - start), TimeUnit.NANOSECONDS);
+                latency.record(System.nanoTime() - start);
+                if (remove) {
+                    this.live.decrementAndGet();
+                }
+            } catch (TimeoutException e) {
+                this.unresolvedCalls.increment();
+                return;
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Call failed", e);
+            }
+        }
+    }
+
+    /**
+     * Print a report line: throughput since the previous line, resident & evicted
+     * tuples, size of the routing maps & used heap, growing maps reveal leaks
+     * @param start The time in nanoseconds the run started
+     * @param lastCounts The number of out, in & read calls at the previous line, updated
+     */
+    private void report(long start, long[] lastCounts) {
+        long[] counts = {this.outLatency.count(), this.inLatency.count(), this.readLatency.count()};
+        double seconds = this.interval;
+        Map<String, Long> snapshot = this.tupleSpace.metrics().snapshot();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(String.format("%5ds %10.0f %10.0f %10.0f %10d %10d %10d %10d %10d %8d",
+            TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+            (counts[0] - lastCounts[0]) / seconds,
+            (counts[1] - lastCounts[1]) / seconds,
+            (counts[2] - lastCounts[2]) / seconds,
+            snapshot.get("tuples.size"),
+            snapshot.get("tuples.evicted"),
+            snapshot.get("routing.messages"),
+            snapshot.get("routing.tombstones"),
+            snapshot.get("routing.queries"),
+            (runtime.totalMemory() - runtime.freeMemory()) >> 20));
+        System.arraycopy(counts, 0, lastCounts, 0, counts.length);
+    }
+
+    /**
+     * Print the throughput & latency percentiles in microseconds of every call,
+     * the evictions & the calls rejected or left unresolved
+     * @param elapsed The duration of the run in nanoseconds
+     */
+    private void summary(long elapsed) {
+        double seconds = elapsed / 1e9;
+        System.out.println();
+        System.out.println(String.format("%-6s %10s %10s %10s %10s %10s %10s",
+            "Call", "Count", "Ops/s", "p50 us", "p99 us", "p999 us", "Max us"));
+        printLatency("out", this.outLatency, seconds);
+        printLatency("in", this.inLatency, seconds);
+        printLatency("read", this.readLatency, seconds);
+
+        Map<String, Long> snapshot = this.tupleSpace.metrics().snapshot();
+        System.out.println();
+        System.out.println("Evicted tuples: " + snapshot.get("tuples.evicted")
+            + " (" + snapshot.get("tuples.evicted.live") + " live)");
+        System.out.println("Expired tuples dropped: " + snapshot.get("tuples.expired"));
+        System.out.println("Tuples handed to waiting calls: " + snapshot.get("tuples.handed.off"));
+        System.out.println("Rejected calls: " + this.rejectedCalls.sum());
+        System.out.println("Unresolved calls at the end: " + this.unresolvedCalls.sum());
+        System.out.println("Routing maps: messages=" + snapshot.get("routing.messages")
+            + " tombstones=" + snapshot.get("routing.tombstones")
+            + " queries=" + snapshot.get("routing.queries")
+            + " hosts=" + snapshot.get("routing.hosts")
+            + " transfers=" + snapshot.get("routing.transfers"));
+    }
+
+    /**
+     * Print the summary line of a call
+     * @param name The name of the call
+     * @param latency The latency of the call
+     * @param seconds The duration of the run in seconds
+     */
+    private static void printLatency(String name, Histogram latency, double seconds) {
+        System.out.println(String.format("%-6s %10d %10.0f %10d %10d %10d %10d",
+            name, latency.count(), latency.count() / seconds,
+            TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.50)),
+            TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.99)),
+            TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.999)),
+            TimeUnit.NANOSECONDS.toMicros(latency.max())));
+    }
+
+    /**
+     * Build a tuple of a random key followed by random payloads
+     * @return The tuple
+     */
+    private ITuple tuple() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        IField[] fields = new IField[this.arity];
+        fields[0] = Field.of(Integer.class, random.nextInt(this.keys));
+        for (int i = 1; i < this.arity; i++) {
+            fields[i] = new Field<>(String.class, this.payloads[random.nextInt(PAYLOADS)]);
+        }
+        long leasing = this.lease == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + this.lease;
+        return new Tuple(leasing, fields);
+    }
+
+    /**
+     * Build the template looking up the given key, formal payloads
+     * @param key The key to look up
+     * @return The template
+     */
+    private ITuple actualTemplate(int key) {
+        IField[] fields = new IField[this.arity];
+        fields[0] = Field.of(Integer.class, key);
+        for (int i = 1; i < this.arity; i++) {
+            fields[i] = Field.of(String.class);
+        }
+        return new Tuple(fields);
+    }
+
+    /**
+     * Build the all formal template, matching any tuple of the workload
+     * @return The template
+     */
+    private ITuple formalTemplate() {
+        IField[] fields = new IField[this.arity];
+        fields[0] = Field.of(Integer.class);
+        for (int i = 1; i < this.arity; i++) {
+            fields[i] = Field.of(String.class);
+        }
+        return new Tuple(fields);
+    }
+
+    /**
+     * Build a random payload of the configured size
+     * @param seed The seed of the payload
+     * @return The payload
+     */
+    private String payload(int seed) {
+        StringBuilder payload = new StringBuilder(this.size);
+        Random random = new Random(seed);
+        for (int i = 0; i < this.size; i++) {
+            payload.append((char) ('a' + random.nextInt(26)));
+        }
+        return payload.toString();
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.uniandes.jcbages10.benchmark;
+
+import com.uniandes.jcbages10.routing.IMessage;
+import com.uniandes.jcbages10.routing.IRouting;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+import com.uniandes.jcbages10.tuplespace.ITupleSpace;
+import com.uniandes.jcbages10.tuplespace.TupleSpaceFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class RoutingBenchmarks {
+
+    /**
+     * Non instantiable suite
+     */
+    private RoutingBenchmarks() {
+    }
+
+    /**
+     * Build the benchmarks of the routing handshake
+     * @param sizes The numbers of buffered messages to benchmark with
+     * @return The benchmarks of the suite
+     */
+    static List<IBenchmark> all(int[] sizes) {
+        List<IBenchmark> benchmarks = new ArrayList<>();
+        for (int size : sizes) {
+            benchmarks.add(new HandshakeBenchmark(size));
+            benchmarks.add(new EncodedHandshakeBenchmark(size));
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Benchmark of a full exchange between a node carrying the given number
+     * of messages and an empty node: messagesIds -> requestMessages ->
+     * sendMessages -> receiveMessages. The receiving node is rebuilt before
+     * every invocation so every exchange transfers the whole buffer
+     */
+    private static class HandshakeBenchmark extends Benchmark {
+
+        protected final int size;
+
+        protected ITupleSpace sender;
+
+        protected ITupleSpace receiver;
+
+        HandshakeBenchmark(int size) {
+            this("Routing handshake messages=" + size, size);
+        }
+
+        HandshakeBenchmark(String name, int size) {
+            super(name);
+            this.size = size;
+        }
+
+        @Override
+        public void setup() {
+            this.sender = TupleSpaceBenchmarks.createSpace(this.size);
+            TupleSpaceBenchmarks.fill(this.sender, this.size, Long.MAX_VALUE);
+        }
+
+        @Override
+        public void prepare() {
+            if (this.receiver != null) {
+                TupleSpaceFactory.destroy(this.receiver.name());
+            }
+            this.receiver = TupleSpaceBenchmarks.createSpace(this.size);
+        }
+
+        @Override
+        public int run() {
+            IRouting<ITuple> senderRouting = this.sender.routing();
+            IRouting<ITuple> receiverRouting = this.receiver.routing();
+
+            List<UUID> offered = senderRouting.messagesIds();
+            List<UUID> requested = receiverRouting.requestMessages(offered);
+            List<IMessage<ITuple>> messages = senderRouting.sendMessages(requested);
+            receiverRouting.receiveMessages(messages);
+            return messages.size();
+        }
+
+        @Override
+        public void teardown() {
+            TupleSpaceFactory.destroy(this.sender.name());
+            if (this.receiver != null) {
+                TupleSpaceFactory.destroy(this.receiver.name());
+            }
+        }
+
+    }
+
+    /**
+     * Same exchange as the handshake benchmark but encoded for the air
+     * through sendEncodedMessages -> receiveEncodedMessages
+     */
+    private static class EncodedHandshakeBenchmark extends HandshakeBenchmark {
+
+        EncodedHandshakeBenchmark(int size) {
+            super("Routing encoded handshake messages=" + size, size);
+        }
+
+        @Override
+        public int run() {
+            IRouting<ITuple> senderRouting = this.sender.routing();
+            IRouting<ITuple> receiverRouting = this.receiver.routing();
+
+            List<UUID> offered = senderRouting.messagesIds();
+            List<UUID> requested = receiverRouting.requestMessages(offered);
+            byte[] payload = senderRouting.sendEncodedMessages(
+                receiverRouting.id(), requested, receiverRouting.compressionOffer());
+            receiverRouting.receiveEncodedMessages(payload);
+            return requested.size();
+        }
+
+    }
+
+}
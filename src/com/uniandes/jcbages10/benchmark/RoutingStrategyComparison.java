@@ -0,0 +1,184 @@
+package com.uniandes.jcbages10.benchmark;
+
+import com.uniandes.jcbages10.metrics.Histogram;
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.routing.*;
+import com.uniandes.jcbages10.tuplespace.*;
+
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+public class RoutingStrategyComparison {
+
+    /**
+     * Default number of nodes of the simulated network
+     */
+    private final static int DEFAULT_NODES = 20;
+
+    /**
+     * Default number of tuples produced, each one consumed by a single node
+     */
+    private final static int DEFAULT_TUPLES = 20;
+
+    /**
+     * Default number of contacts between random pairs of nodes
+     */
+    private final static int DEFAULT_CONTACTS = 400;
+
+    /**
+     * Seed of the random contacts, the same for every strategy
+     */
+    private final static long SEED = 42;
+
+    /**
+     * Number of nodes of the simulated network
+     */
+    private int nodes;
+
+    /**
+     * Number of tuples produced
+     */
+    private int tuples;
+
+    /**
+     * Number of contacts between random pairs of nodes
+     */
+    private int contacts;
+
+    /**
+     * Compare the overhead ratio of the routing strategies on the same contacts,
+     * accepted options are --nodes=n --tuples=n --contacts=n
+     * @param args The command line options
+     */
+    public static void main(String... args) throws Exception {
+        RoutingStrategyComparison comparison = new RoutingStrategyComparison(args);
+
+        Map<String, Supplier<IRoutingStrategy<ITuple>>> strategies = new LinkedHashMap<>();
+        strategies.put("epidemic", EpidemicStrategy::new);
+        strategies.put("spray-and-wait", SprayAndWaitStrategy::new);
+        strategies.put("prophet", ProphetStrategy::new);
+
+        System.out.println(String.format("%-16s %10s %10s %10s %12s %12s",
+            "Strategy", "Delivered", "Relayed", "Overhead", "Latency p50", "Latency p99"));
+        for (Map.Entry<String, Supplier<IRoutingStrategy<ITuple>>> strategy : strategies.entrySet()) {
+            comparison.run(strategy.getKey(), strategy.getValue());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Constructor for initializing the comparison options with the given args
+     * @param args The command line options
+     */
+    private RoutingStrategyComparison(String... args) {
+        this.nodes = DEFAULT_NODES;
+        this.tuples = DEFAULT_TUPLES;
+        this.contacts = DEFAULT_CONTACTS;
+
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            int value = Integer.parseInt(option.length > 1 ? option[1] : "0");
+            switch (option[0]) {
+                case "--nodes":
+                    this.nodes = value;
+                    break;
+                case "--tuples":
+                    this.tuples = value;
+                    break;
+                case "--contacts":
+                    this.contacts = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (this.nodes < 2) {
+            throw new IllegalArgumentException("At least two nodes are needed");
+        }
+    }
+
+    /**
+     * Simulate the network with the given strategy: every tuple is put in a random node
+     * & read with distributed read from another one, then random pairs of nodes exchange
+     * queries & messages. Latency is measured in contacts until the read resolves,
+     * overhead ratio is (relayed - delivered) / delivered
+     * @param name The name of the strategy
+     * @param strategy The factory of the strategy
+     */
+    private void run(String name, Supplier<IRoutingStrategy<ITuple>> strategy) throws Exception {
+        Random random = new Random(SEED);
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration()
+            .withCapacity(this.tuples * 2)
+            .withMaxCalls(this.tuples)
+            .withDistributedRead(true)
+            .withRoutingStrategy(strategy);
+
+        List<ITupleSpace> spaces = new ArrayList<>();
+        for (int i = 0; i < this.nodes; i++) {
+            spaces.add(TupleSpaceFactory.create("comparison-" + name + "-" + i, configuration));
+        }
+
+        Map<Future<ITuple>, Integer> pending = new HashMap<>();
+        for (int i = 0; i < this.tuples; i++) {
+            int producer = random.nextInt(this.nodes);
+            int consumer = (producer + 1 + random.nextInt(this.nodes - 1)) % this.nodes;
+            spaces.get(producer).out(new Tuple(Long.MAX_VALUE,
+                new Field<>(String.class, "comparison"), new Field<>(Integer.class, i)));
+            pending.put(spaces.get(consumer).read(new Tuple(
+                new Field<>(String.class, "comparison"), new Field<>(Integer.class, i))), 0);
+        }
+        // Let every read issue its query
+        Thread.sleep(100);
+
+        Histogram latency = new MetricsRegistry().histogram("latency.contacts");
+        long relayed = 0;
+        for (int contact = 1; contact <= this.contacts && !pending.isEmpty(); contact++) {
+            int a = random.nextInt(this.nodes);
+            int b = (a + 1 + random.nextInt(this.nodes - 1)) % this.nodes;
+            relayed += exchange(spaces.get(a).routing(), spaces.get(b).routing());
+            relayed += exchange(spaces.get(b).routing(), spaces.get(a).routing());
+
+            // Give the blocked reads the chance to pick up the received tuples
+            Thread.sleep(1);
+            Iterator<Future<ITuple>> iterator = pending.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isDone()) {
+                    iterator.remove();
+                    latency.record(contact);
+                }
+            }
+        }
+
+        long delivered = latency.count();
+        String overhead = delivered == 0 ? "-" : String.format("%.2f", (relayed - delivered) / (double) delivered);
+        System.out.println(String.format("%-16s %10d %10d %10s %12d %12d",
+            name, delivered, relayed, overhead, latency.percentile(0.50), latency.percentile(0.99)));
+
+        for (ITupleSpace space : spaces) {
+            TupleSpaceFactory.destroy(space.name());
+        }
+    }
+
+    /**
+     * One direction of a contact, the sender gives its tombstones, the receiver offers
+     * its queries & the sender answers them, then the sender offers its messages
+     * & the receiver requests the new ones
+     * @param sender The routing of the node offering messages
+     * @param receiver The routing of the node receiving messages
+     * @return The number of messages transferred
+     */
+    private static int exchange(IRouting<ITuple> sender, IRouting<ITuple> receiver) {
+        receiver.receiveTombstones(sender.tombstones(receiver.id()));
+        sender.encounter(receiver.id(), receiver.summary());
+        List<IMessage<ITuple>> replies = sender.answerQueries(receiver.queries());
+        receiver.receiveMessages(replies);
+
+        List<UUID> offered = sender.messagesIds(receiver.id());
+        List<UUID> requested = receiver.requestMessages(offered);
+        List<IMessage<ITuple>> messages = sender.sendMessages(receiver.id(), requested);
+        receiver.receiveMessages(messages);
+        return replies.size() + messages.size();
+    }
+
+}
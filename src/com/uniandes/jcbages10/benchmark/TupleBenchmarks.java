@@ -0,0 +1,109 @@
+package com.uniandes.jcbages10.benchmark;
+
+import com.uniandes.jcbages10.tuplespace.Field;
+import com.uniandes.jcbages10.tuplespace.IField;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+import com.uniandes.jcbages10.tuplespace.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TupleBenchmarks {
+
+    /**
+     * Number of operations per invocation, amortizes the timer cost
+     */
+    private final static int BATCH_SIZE = 1000;
+
+    /**
+     * Sink for results so the JIT can't drop the measured code
+     */
+    static volatile Object sink;
+
+    /**
+     * Non instantiable suite
+     */
+    private TupleBenchmarks() {
+    }
+
+    /**
+     * Build the benchmarks of Tuple.match & Field.equals
+     * @return The benchmarks of the suite
+     */
+    static List<IBenchmark> all() {
+        ITuple tuple = new Tuple(
+            Long.MAX_VALUE,
+            new Field<>(Integer.class, 10),
+            new Field<>(String.class, "Hello my friend"),
+            new Field<>(Long.class, 42L)
+        );
+        ITuple actualTemplate = new Tuple(
+            new Field<>(Integer.class, 10),
+            new Field<>(String.class, "Hello my friend"),
+            new Field<>(Long.class, 42L)
+        );
+        ITuple formalTemplate = new Tuple(
+            new Field<>(Integer.class),
+            new Field<>(String.class),
+            new Field<>(Long.class)
+        );
+        ITuple mismatchTemplate = new Tuple(
+            new Field<>(Integer.class, 11),
+            new Field<>(String.class),
+            new Field<>(Long.class)
+        );
+
+        List<IBenchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(match("Tuple.match actual template", tuple, actualTemplate));
+        benchmarks.add(match("Tuple.match formal template", tuple, formalTemplate));
+        benchmarks.add(match("Tuple.match mismatching template", tuple, mismatchTemplate));
+        benchmarks.add(equals("Field.equals Integer",
+            new Field<>(Integer.class, 1000), new Field<>(Integer.class, 1000)));
+        benchmarks.add(equals("Field.equals String",
+            new Field<>(String.class, "Hello my friend"), new Field<>(String.class, "Hello my friend")));
+        return benchmarks;
+    }
+
+    /**
+     * Benchmark for matching a tuple against a template
+     * @param name The name of the benchmark
+     * @param tuple The tuple to match
+     * @param template The template to match the tuple with
+     * @return The benchmark
+     */
+    private static IBenchmark match(String name, ITuple tuple, ITuple template) {
+        return new Benchmark(name) {
+            @Override
+            public int run() {
+                Object result = null;
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    result = tuple.match(template);
+                }
+                sink = result;
+                return BATCH_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Benchmark for comparing two fields
+     * @param name The name of the benchmark
+     * @param field1 The first field to compare
+     * @param field2 The second field to compare
+     * @return The benchmark
+     */
+    private static IBenchmark equals(String name, IField field1, IField field2) {
+        return new Benchmark(name) {
+            @Override
+            public int run() {
+                boolean result = false;
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    result ^= field1.equals(field2);
+                }
+                sink = result;
+                return BATCH_SIZE;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,404 @@
+package com.uniandes.jcbages10.benchmark;
+
+import com.uniandes.jcbages10.tuplespace.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TupleSpaceBenchmarks {
+
+    /**
+     * Capacity of the spaces used for out, in & read benchmarks
+     */
+    private final static int CAPACITY = 100000;
+
+    /**
+     * Capacity of the full space used for the eviction benchmark
+     */
+    private final static int EVICTION_CAPACITY = 10000;
+
+    /**
+     * Number of tuples per outMany call
+     */
+    private final static int BATCH_SIZE = 100;
+
+    /**
+     * Occupancy ratios of the space to benchmark with
+     */
+    private final static double[] OCCUPANCIES = {0.0, 0.5, 0.9};
+
+    /**
+     * Numbers of concurrent producers to benchmark out with
+     */
+    private final static int[] PRODUCERS = {1, 4, 16};
+
+    /**
+     * Number of out calls per producer per invocation
+     */
+    private final static int OUTS_PER_PRODUCER = 1000;
+
+    /**
+     * Capacity of the full space used for the scan benchmarks
+     */
+    private final static int SCAN_CAPACITY = 1000000;
+
+    /**
+     * Counter for generating unique space names
+     */
+    private final static AtomicInteger spaceCounter = new AtomicInteger();
+
+    /**
+     * Non instantiable suite
+     */
+    private TupleSpaceBenchmarks() {
+    }
+
+    /**
+     * Build the benchmarks of the TS operations
+     * @return The benchmarks of the suite
+     */
+    static List<IBenchmark> all() {
+        List<IBenchmark> benchmarks = new ArrayList<>();
+        for (double occupancy : OCCUPANCIES) {
+            benchmarks.add(new OutBenchmark(occupancy, 1));
+            benchmarks.add(new OutBenchmark(occupancy, BATCH_SIZE));
+        }
+        for (int producers : PRODUCERS) {
+            benchmarks.add(new ConcurrentOutBenchmark(producers));
+        }
+        benchmarks.add(new EvictionBenchmark());
+        benchmarks.add(new RetrieveBenchmark(false, true));
+        benchmarks.add(new RetrieveBenchmark(false, false));
+        benchmarks.add(new RetrieveBenchmark(true, true));
+        benchmarks.add(new RetrieveBenchmark(true, false));
+        benchmarks.add(new ScanBenchmark(1));
+        benchmarks.add(new ScanBenchmark(Math.max(2, Runtime.getRuntime().availableProcessors())));
+        return benchmarks;
+    }
+
+    /**
+     * Create a space for a benchmark with a unique name
+     * @param capacity The capacity of the space
+     * @return The created space
+     */
+    static ITupleSpace createSpace(int capacity) {
+        String name = "benchmark-" + spaceCounter.incrementAndGet();
+        return TupleSpaceFactory.create(name, new TupleSpaceConfiguration().withCapacity(capacity));
+    }
+
+    /**
+     * Fill the given space with the given number of filler tuples
+     * @param tupleSpace The space to fill
+     * @param numberOfTuples The number of tuples to add
+     * @param leasing The leasing of the filler tuples
+     */
+    static void fill(ITupleSpace tupleSpace, int numberOfTuples, long leasing) {
+        ITuple[] tuples = new ITuple[numberOfTuples];
+        for (int i = 0; i < numberOfTuples; i++) {
+            tuples[i] = fillerTuple(i, leasing);
+        }
+        tupleSpace.outMany(tuples);
+    }
+
+    /**
+     * Build a filler tuple (i, "value-i")
+     * @param i The id of the tuple
+     * @param leasing The leasing of the tuple
+     * @return The filler tuple
+     */
+    static ITuple fillerTuple(int i, long leasing) {
+        return new Tuple(leasing, new Field<>(Integer.class, i), new Field<>(String.class, "value-" + i));
+    }
+
+    /**
+     * Build the probe tuple (-1, "probe") inserted by the out benchmarks
+     * @return The probe tuple
+     */
+    static ITuple probeTuple() {
+        return new Tuple(Long.MAX_VALUE, new Field<>(Integer.class, -1), new Field<>(String.class, "probe"));
+    }
+
+    /**
+     * Benchmark of out & outMany at a given occupancy, the probes inserted
+     * by an invocation are taken back before the next one to keep occupancy
+     */
+    private static class OutBenchmark extends Benchmark {
+
+        private final double occupancy;
+
+        private final int batchSize;
+
+        private final ITuple probeTemplate;
+
+        private ITupleSpace tupleSpace;
+
+        private int insertedProbes;
+
+        OutBenchmark(double occupancy, int batchSize) {
+            super(String.format("TupleSpace.%s occupancy=%.0f%%",
+                batchSize == 1 ? "out" : "outMany(" + batchSize + ")", occupancy * 100));
+            this.occupancy = occupancy;
+            this.batchSize = batchSize;
+            this.probeTemplate = new Tuple(new Field<>(Integer.class, -1), new Field<>(String.class));
+        }
+
+        @Override
+        public void setup() {
+            this.tupleSpace = createSpace(CAPACITY);
+            fill(this.tupleSpace, (int) (CAPACITY * this.occupancy), Long.MAX_VALUE);
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            for (; this.insertedProbes > 0; this.insertedProbes--) {
+                this.tupleSpace.in(this.probeTemplate).get();
+            }
+        }
+
+        @Override
+        public int run() {
+            if (this.batchSize == 1) {
+                this.tupleSpace.out(probeTuple());
+            } else {
+                ITuple[] probes = new ITuple[this.batchSize];
+                for (int i = 0; i < this.batchSize; i++) {
+                    probes[i] = probeTuple();
+                }
+                this.tupleSpace.outMany(probes);
+            }
+            this.insertedProbes = this.batchSize;
+            return this.batchSize;
+        }
+
+        @Override
+        public void teardown() {
+            TupleSpaceFactory.destroy(this.tupleSpace.name());
+        }
+
+    }
+
+    /**
+     * Benchmark of out called by concurrent producers, the space is
+     * rebuilt before it gets full so no invocation evicts tuples
+     */
+    private static class ConcurrentOutBenchmark extends Benchmark {
+
+        private final int producers;
+
+        private ExecutorService executor;
+
+        private ITupleSpace tupleSpace;
+
+        private int insertedTuples;
+
+        ConcurrentOutBenchmark(int producers) {
+            super("TupleSpace.out concurrent producers=" + producers);
+            this.producers = producers;
+        }
+
+        @Override
+        public void setup() {
+            this.executor = Executors.newFixedThreadPool(this.producers);
+        }
+
+        @Override
+        public void prepare() {
+            if (this.tupleSpace == null || this.insertedTuples + this.producers * OUTS_PER_PRODUCER > CAPACITY) {
+                if (this.tupleSpace != null) {
+                    TupleSpaceFactory.destroy(this.tupleSpace.name());
+                }
+                this.tupleSpace = createSpace(CAPACITY);
+                this.insertedTuples = 0;
+            }
+        }
+
+        @Override
+        public int run() throws Exception {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < this.producers; i++) {
+                futures.add(this.executor.submit(() -> {
+                    for (int j = 0; j < OUTS_PER_PRODUCER; j++) {
+                        this.tupleSpace.out(probeTuple());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            this.insertedTuples += this.producers * OUTS_PER_PRODUCER;
+            return this.producers * OUTS_PER_PRODUCER;
+        }
+
+        @Override
+        public void teardown() {
+            this.executor.shutdown();
+            if (this.tupleSpace != null) {
+                TupleSpaceFactory.destroy(this.tupleSpace.name());
+            }
+        }
+
+    }
+
+    /**
+     * Benchmark of out on a full space, every call evicts the oldest tuple
+     */
+    private static class EvictionBenchmark extends Benchmark {
+
+        private ITupleSpace tupleSpace;
+
+        EvictionBenchmark() {
+            super("TupleSpace.out full (eraseTuplesWithOldestLeasing) capacity=" + EVICTION_CAPACITY);
+        }
+
+        @Override
+        public void setup() {
+            this.tupleSpace = createSpace(EVICTION_CAPACITY);
+            long now = System.currentTimeMillis();
+            ITuple[] tuples = new ITuple[EVICTION_CAPACITY];
+            for (int i = 0; i < EVICTION_CAPACITY; i++) {
+                long leasing = now + 3600000 + ThreadLocalRandom.current().nextInt(3600000);
+                tuples[i] = fillerTuple(i, leasing);
+            }
+            this.tupleSpace.outMany(tuples);
+        }
+
+        @Override
+        public int run() {
+            this.tupleSpace.out(probeTuple());
+            return 1;
+        }
+
+        @Override
+        public void teardown() {
+            TupleSpaceFactory.destroy(this.tupleSpace.name());
+        }
+
+    }
+
+    /**
+     * Benchmark of in & read latency with actual or formal templates,
+     * actual templates target a random filler tuple of a half full space
+     * looked up through the index of the id field
+     */
+    private static class RetrieveBenchmark extends Benchmark {
+
+        private final boolean remove;
+
+        private final boolean actual;
+
+        private ITupleSpace tupleSpace;
+
+        private int numberOfTuples;
+
+        private ITuple template;
+
+        private ITuple removed;
+
+        RetrieveBenchmark(boolean remove, boolean actual) {
+            super(String.format("TupleSpace.%s %s template occupancy=50%%",
+                remove ? "in" : "read", actual ? "actual" : "formal"));
+            this.remove = remove;
+            this.actual = actual;
+        }
+
+        @Override
+        public void setup() {
+            if (this.actual) {
+                String name = "benchmark-" + spaceCounter.incrementAndGet();
+                this.tupleSpace = TupleSpaceFactory.create(name, new TupleSpaceConfiguration()
+                    .withCapacity(CAPACITY)
+                    .withIndexedField(0, Integer.class, String.class));
+            } else {
+                this.tupleSpace = createSpace(CAPACITY);
+            }
+            this.numberOfTuples = CAPACITY / 2;
+            fill(this.tupleSpace, this.numberOfTuples, Long.MAX_VALUE);
+        }
+
+        @Override
+        public void prepare() {
+            if (this.removed != null) {
+                int id = (Integer) this.removed.get(0).element();
+                this.tupleSpace.out(fillerTuple(id, Long.MAX_VALUE));
+                this.removed = null;
+            }
+
+            if (this.actual) {
+                int target = ThreadLocalRandom.current().nextInt(this.numberOfTuples);
+                this.template = new Tuple(
+                    new Field<>(Integer.class, target),
+                    new Field<>(String.class, "value-" + target)
+                );
+            } else {
+                this.template = new Tuple(new Field<>(Integer.class), new Field<>(String.class));
+            }
+        }
+
+        @Override
+        public int run() throws Exception {
+            ITuple result;
+            if (this.remove) {
+                result = this.tupleSpace.in(this.template).get();
+                this.removed = result;
+            } else {
+                result = this.tupleSpace.read(this.template).get();
+            }
+            TupleBenchmarks.sink = result;
+            return 1;
+        }
+
+        @Override
+        public void teardown() {
+            TupleSpaceFactory.destroy(this.tupleSpace.name());
+        }
+
+    }
+
+    /**
+     * Benchmark of the worst case scan: a full space & a predicate template,
+     * which the indexes can't look up, matching the last tuple only
+     */
+    private static class ScanBenchmark extends Benchmark {
+
+        private final int parallelism;
+
+        private ITupleSpace tupleSpace;
+
+        ScanBenchmark(int parallelism) {
+            super("TupleSpace.read predicate template full scan parallelism=" + parallelism
+                + " capacity=" + SCAN_CAPACITY);
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public void setup() {
+            String name = "benchmark-" + spaceCounter.incrementAndGet();
+            this.tupleSpace = TupleSpaceFactory.create(name, new TupleSpaceConfiguration()
+                .withCapacity(SCAN_CAPACITY)
+                .withScanParallelism(this.parallelism));
+            fill(this.tupleSpace, SCAN_CAPACITY, Long.MAX_VALUE);
+        }
+
+        @Override
+        public int run() throws Exception {
+            ITuple template = new Tuple(
+                new PredicateField<>(Integer.class, i -> i == SCAN_CAPACITY - 1),
+                new Field<>(String.class)
+            );
+            TupleBenchmarks.sink = this.tupleSpace.read(template).get();
+            return 1;
+        }
+
+        @Override
+        public void teardown() {
+            TupleSpaceFactory.destroy(this.tupleSpace.name());
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.uniandes.jcbages10.events;
+
+import com.uniandes.jcbages10.routing.IMessage;
+import com.uniandes.jcbages10.tuplespace.IField;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class Events {
+
+    /**
+     * Estimated size of a message besides its fields: id, hop count & leasing
+     */
+    private final static int MESSAGE_OVERHEAD = 28;
+
+    /**
+     * Non instantiable helper
+     */
+    private Events() {
+    }
+
+    /**
+     * Describe the shape of a tuple, e.g. (Integer, ?String) where
+     * formal fields are prefixed with ?, values are left out on purpose
+     * @param tuple The tuple to describe
+     * @return The signature of the tuple
+     */
+    public static String signature(ITuple tuple) {
+        StringBuilder string = new StringBuilder();
+        string.append("(");
+        for (int i = 0; i < tuple.length(); i++) {
+            IField field = tuple.get(i);
+            if (i > 0) {
+                string.append(", ");
+            }
+            if (field.isFormal()) {
+                string.append("?");
+            }
+            string.append(field.type().getSimpleName());
+        }
+        string.append(")");
+        return string.toString();
+    }
+
+    /**
+     * Estimate the size in bytes of the given messages once on the air
+     * @param messages The messages to measure
+     * @return The estimated size in bytes
+     */
+    public static long estimateBytes(List<IMessage<ITuple>> messages) {
+        long bytes = 0;
+        for (IMessage<ITuple> message : messages) {
+            bytes += MESSAGE_OVERHEAD;
+            ITuple tuple = message.element();
+            for (int i = 0; i < tuple.length(); i++) {
+                bytes += estimateBytes(tuple.get(i));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimate the size in bytes of a field, its type name plus its element
+     * @param field The field to measure
+     * @return The estimated size in bytes
+     */
+    private static long estimateBytes(IField field) {
+        long bytes = field.type().getName().length();
+        Object element = field.element();
+        if (element == null) {
+            return bytes;
+        } else if (element instanceof byte[]) {
+            return bytes + ((byte[]) element).length;
+        } else if (element instanceof ByteBuffer) {
+            return bytes + ((ByteBuffer) element).remaining();
+        } else if (element instanceof Number || element instanceof Boolean || element instanceof Character) {
+            return bytes + Long.BYTES;
+        } else {
+            return bytes + element.toString().length();
+        }
+    }
+
+}
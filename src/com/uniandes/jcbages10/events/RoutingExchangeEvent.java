@@ -0,0 +1,32 @@
+package com.uniandes.jcbages10.events;
+
+import jdk.jfr.*;
+
+@Name("com.uniandes.jcbages10.RoutingExchange")
+@Label("Routing Exchange")
+@Category("Tuple Space")
+@Description("A phase of the exchange of messages with other node")
+@StackTrace(false)
+public class RoutingExchangeEvent extends Event {
+
+    @Label("Space")
+    public String space;
+
+    @Label("Phase")
+    @Description("tombstones, receiveTombstones, queries, answerQueries, messagesIds, requestMessages, sendMessages, receiveMessages, sendChunks or receiveChunks")
+    public String phase;
+
+    @Label("Input")
+    @Description("Number of IDs or messages given to the phase")
+    public int input;
+
+    @Label("Output")
+    @Description("Number of IDs or messages returned or accepted by the phase")
+    public int output;
+
+    @Label("Bytes")
+    @DataAmount
+    @Description("Estimated size of the messages exchanged by the phase")
+    public long bytes;
+
+}
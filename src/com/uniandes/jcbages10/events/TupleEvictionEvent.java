@@ -0,0 +1,22 @@
+package com.uniandes.jcbages10.events;
+
+import jdk.jfr.*;
+
+@Name("com.uniandes.jcbages10.TupleEviction")
+@Label("Tuple Eviction")
+@Category("Tuple Space")
+@Description("A batch of tuples erased by oldest leasing to make room in a full space")
+@StackTrace(false)
+public class TupleEvictionEvent extends Event {
+
+    @Label("Space")
+    public String space;
+
+    @Label("Evicted")
+    public int evicted;
+
+    @Label("Evicted Live")
+    @Description("Number of evicted tuples whose leasing was not expired yet")
+    public int evictedLive;
+
+}
@@ -0,0 +1,22 @@
+package com.uniandes.jcbages10.events;
+
+import jdk.jfr.*;
+
+@Name("com.uniandes.jcbages10.TupleOut")
+@Label("Tuple Out")
+@Category("Tuple Space")
+@Description("Tuples added to a tuple space by out, outMany or outRouting")
+@StackTrace(false)
+public class TupleOutEvent extends Event {
+
+    @Label("Space")
+    public String space;
+
+    @Label("Tuples")
+    public int tuples;
+
+    @Label("From Routing")
+    @Description("Whether the tuples were received from other node")
+    public boolean fromRouting;
+
+}
@@ -0,0 +1,43 @@
+package com.uniandes.jcbages10.events;
+
+import jdk.jfr.*;
+
+@Name("com.uniandes.jcbages10.TupleRetrieve")
+@Label("Tuple Retrieve")
+@Category("Tuple Space")
+@Description("An in or read call, lasting since submitted until resolved")
+@StackTrace(false)
+public class TupleRetrieveEvent extends Event {
+
+    @Label("Space")
+    public String space;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Template")
+    @Description("Signature of the template, formal fields are prefixed with ?")
+    public String template;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    @Description("Time since the call was submitted until resolved, including time queued for a thread")
+    public long waitTime;
+
+    @Label("Scans")
+    @Description("Number of times the space was scanned looking for a match")
+    public int scans;
+
+    @Label("Scanned Slots")
+    @Description("Number of slots visited across every scan")
+    public long scannedSlots;
+
+    @Label("Handed Off")
+    @Description("Whether the match was handed to the waiting call by an insertion instead of found by a scan")
+    public boolean handedOff;
+
+    @Label("Result")
+    @Description("Signature of the matched tuple, its values are left out")
+    public String result;
+
+}
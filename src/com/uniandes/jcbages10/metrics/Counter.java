@@ -0,0 +1,42 @@
+package com.uniandes.jcbages10.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+
+    /**
+     * Striped adder, recording never blocks nor contends on a single cell
+     */
+    private final LongAdder adder;
+
+    /**
+     * Constructor for initializing the counter in 0
+     */
+    Counter() {
+        this.adder = new LongAdder();
+    }
+
+    /**
+     * Increase the counter by one
+     */
+    public void increment() {
+        this.adder.increment();
+    }
+
+    /**
+     * Increase the counter by the given amount
+     * @param amount The amount to add
+     */
+    public void add(long amount) {
+        this.adder.add(amount);
+    }
+
+    /**
+     * Return the current value of the counter
+     * @return The value of the counter
+     */
+    public long value() {
+        return this.adder.sum();
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.uniandes.jcbages10.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+
+    /**
+     * Number of linear sub buckets per power of two, bounds the relative error to 1/16
+     */
+    private final static int SUB_BUCKETS = 16;
+
+    /**
+     * Bits needed to index a sub bucket
+     */
+    private final static int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Number of buckets needed to cover every non negative long
+     */
+    private final static int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Log-linear buckets of recorded values
+     */
+    private final AtomicLongArray buckets;
+
+    /**
+     * Number of recorded values
+     */
+    private final LongAdder count;
+
+    /**
+     * Sum of recorded values
+     */
+    private final LongAdder sum;
+
+    /**
+     * Max recorded value
+     */
+    private final AtomicLong max;
+
+    /**
+     * Constructor for initializing an empty histogram
+     */
+    Histogram() {
+        this.buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Record the given value, negative values are recorded as 0
+     * @param value The value to record
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.increment();
+        this.sum.add(value);
+
+        long currentMax = this.max.get();
+        while (value > currentMax && !this.max.compareAndSet(currentMax, value)) {
+            currentMax = this.max.get();
+        }
+    }
+
+    /**
+     * Return the number of recorded values
+     * @return The number of recorded values
+     */
+    public long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * Return the mean of the recorded values
+     * @return The mean or 0 if nothing was recorded
+     */
+    public long mean() {
+        long count = this.count.sum();
+        return count == 0 ? 0 : this.sum.sum() / count;
+    }
+
+    /**
+     * Return the max recorded value
+     * @return The max recorded value
+     */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Return an approximation of the given percentile of the recorded values,
+     * the approximation is the upper bound of the bucket holding it
+     * @param percentile The percentile between 0 & 1
+     * @return The approximated percentile or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            total += this.buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * total));
+        long accumulated = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            accumulated += this.buckets.get(i);
+            if (accumulated >= target) {
+                return Math.min(upperBoundOf(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Return the bucket index of the given non negative value
+     * @param value The value to find its bucket
+     * @return The bucket index
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Return the greatest value held by the given bucket
+     * @param bucket The bucket index
+     * @return The upper bound of the bucket
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.uniandes.jcbages10.metrics;
+
+import javax.management.*;
+import java.util.Map;
+
+class MetricsMBean implements DynamicMBean {
+
+    /**
+     * The registry exposed by this bean
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructor for initializing the exposed registry
+     * @param registry The registry to expose
+     */
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Return the current value of the metric with the given name
+     * @param attribute The name of the metric
+     * @return The value of the metric
+     */
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long value = this.registry.snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    /**
+     * Return the current value of the metrics with the given names
+     * @param attributes The names of the metrics
+     * @return The values of the metrics found
+     */
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Long> snapshot = this.registry.snapshot();
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            if (snapshot.containsKey(attribute)) {
+                result.add(new Attribute(attribute, snapshot.get(attribute)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Metrics are read only
+     */
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read only");
+    }
+
+    /**
+     * Metrics are read only
+     */
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * There are no operations
+     */
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Describe every metric currently in the registry as a read only long attribute
+     * @return The bean description
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Long> snapshot = this.registry.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (String name : snapshot.keySet()) {
+            attributes[i++] = new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+        }
+        return new MBeanInfo(MetricsRegistry.class.getName(), "Tuple space metrics",
+            attributes, null, null, null);
+    }
+
+}
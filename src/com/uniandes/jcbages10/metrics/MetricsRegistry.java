@@ -0,0 +1,138 @@
+package com.uniandes.jcbages10.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+public class MetricsRegistry {
+
+    /**
+     * JMX domain under which registries are exposed
+     */
+    private final static String JMX_DOMAIN = "com.uniandes.jcbages10";
+
+    /**
+     * Percentiles exported for every histogram
+     */
+    private final static double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    /**
+     * Suffixes of the exported percentiles
+     */
+    private final static String[] PERCENTILES_SUFFIXES = {".p50", ".p99", ".p999"};
+
+    /**
+     * Map from name -> counter
+     */
+    private final Map<String, Counter> counters;
+
+    /**
+     * Map from name -> gauge
+     */
+    private final Map<String, LongSupplier> gauges;
+
+    /**
+     * Map from name -> histogram
+     */
+    private final Map<String, Histogram> histograms;
+
+    /**
+     * Name under which the registry is exposed through JMX, none if not registered
+     */
+    private ObjectName objectName;
+
+    /**
+     * Constructor for initializing an empty registry
+     */
+    public MetricsRegistry() {
+        this.counters = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Return the counter with the given name, creating it if necessary
+     * @param name The name of the counter
+     * @return The counter
+     */
+    public Counter counter(String name) {
+        return this.counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Register a gauge computed on demand by the given supplier
+     * @param name The name of the gauge
+     * @param supplier The supplier of the gauge value
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        this.gauges.put(name, supplier);
+    }
+
+    /**
+     * Return the histogram with the given name, creating it if necessary
+     * @param name The name of the histogram
+     * @return The histogram
+     */
+    public Histogram histogram(String name) {
+        return this.histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Pull the current value of every metric, histograms are flattened
+     * as name.count, name.mean, name.max, name.p50, name.p99 & name.p999
+     * @return Sorted map from metric name -> value
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        this.counters.forEach((name, counter) -> snapshot.put(name, counter.value()));
+        this.gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        this.histograms.forEach((name, histogram) -> {
+            snapshot.put(name + ".count", histogram.count());
+            snapshot.put(name + ".mean", histogram.mean());
+            snapshot.put(name + ".max", histogram.max());
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                snapshot.put(name + PERCENTILES_SUFFIXES[i], histogram.percentile(PERCENTILES[i]));
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Expose the registry through the platform MBean server
+     * @param type The type property of the JMX name
+     * @param name The name property of the JMX name
+     */
+    public synchronized void register(String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(this), objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Remove the registry from the platform MBean server if it was exposed
+     */
+    public synchronized void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        this.objectName = null;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.uniandes.jcbages10.routing;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+public class Chunk {
+
+    /**
+     * The ID of the message the chunk belongs to
+     */
+    private final UUID id;
+
+    /**
+     * The hop count of the message once transferred
+     */
+    private final int hopCount;
+
+    /**
+     * The copies of the message once transferred
+     */
+    private final int copies;
+
+    /**
+     * The position of the chunk within the encoded tuple of the message
+     */
+    private final int offset;
+
+    /**
+     * The size of the whole encoded tuple
+     */
+    private final int length;
+
+    /**
+     * The CRC32 of the whole encoded tuple, to validate the transfer once complete
+     */
+    private final long checksum;
+
+    /**
+     * Read-only view of the bytes of the chunk
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Constructor for initializing every property of the chunk
+     * @param id The ID of the message
+     * @param hopCount The hop count of the message once transferred
+     * @param copies The copies of the message once transferred
+     * @param offset The position of the chunk within the encoded tuple
+     * @param length The size of the whole encoded tuple
+     * @param checksum The CRC32 of the whole encoded tuple
+     * @param data The bytes of the chunk
+     */
+    public Chunk(UUID id, int hopCount, int copies, int offset, int length, long checksum, ByteBuffer data) {
+        this.id = id;
+        this.hopCount = hopCount;
+        this.copies = copies;
+        this.offset = offset;
+        this.length = length;
+        this.checksum = checksum;
+        this.data = data.asReadOnlyBuffer();
+    }
+
+    /**
+     * Return the ID of the message the chunk belongs to
+     * @return The message ID
+     */
+    public UUID id() {
+        return this.id;
+    }
+
+    /**
+     * Return the hop count of the message once transferred
+     * @return The hop count
+     */
+    public int hopCount() {
+        return this.hopCount;
+    }
+
+    /**
+     * Return the copies of the message once transferred
+     * @return The copies
+     */
+    public int copies() {
+        return this.copies;
+    }
+
+    /**
+     * Return the position of the chunk within the encoded tuple of the message
+     * @return The offset of the chunk
+     */
+    public int offset() {
+        return this.offset;
+    }
+
+    /**
+     * Return the size of the whole encoded tuple
+     * @return The length of the encoded tuple
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Return the CRC32 of the whole encoded tuple
+     * @return The checksum of the encoded tuple
+     */
+    public long checksum() {
+        return this.checksum;
+    }
+
+    /**
+     * Return a read-only view of the bytes of the chunk
+     * @return The bytes of the chunk
+     */
+    public ByteBuffer data() {
+        return this.data.duplicate();
+    }
+
+    /**
+     * Determines if this chunk completes the encoded tuple
+     * @return True if it's the last chunk
+     */
+    public boolean isLast() {
+        return this.offset + this.data.remaining() == this.length;
+    }
+
+}
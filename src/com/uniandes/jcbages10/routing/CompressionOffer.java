@@ -0,0 +1,51 @@
+package com.uniandes.jcbages10.routing;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class CompressionOffer {
+
+    /**
+     * Offer of a host that can't decode compressed messages
+     */
+    public final static CompressionOffer NONE = new CompressionOffer(false, Collections.emptySet());
+
+    /**
+     * Whether or not the host can inflate deflated messages
+     */
+    private final boolean deflate;
+
+    /**
+     * IDs of the dictionaries the host already holds
+     */
+    private final Set<Integer> dictionaries;
+
+    /**
+     * Constructor for initializing the offer of a host
+     * @param deflate Whether or not the host can inflate deflated messages
+     * @param dictionaries IDs of the dictionaries the host already holds
+     */
+    public CompressionOffer(boolean deflate, Set<Integer> dictionaries) {
+        this.deflate = deflate;
+        this.dictionaries = Collections.unmodifiableSet(new HashSet<>(dictionaries));
+    }
+
+    /**
+     * Return whether or not the host can inflate deflated messages
+     * @return True if messages can be deflated for the host
+     */
+    public boolean acceptsDeflate() {
+        return this.deflate;
+    }
+
+    /**
+     * Return the IDs of the dictionaries the host already holds,
+     * other dictionaries must be sent along with the messages
+     * @return The IDs of the dictionaries
+     */
+    public Set<Integer> dictionaries() {
+        return this.dictionaries;
+    }
+
+}
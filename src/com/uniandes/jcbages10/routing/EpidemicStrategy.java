@@ -0,0 +1,91 @@
+package com.uniandes.jcbages10.routing;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class EpidemicStrategy<T> implements IRoutingStrategy<T> {
+
+    /**
+     * Return the name of the strategy
+     * @return The name of the strategy
+     */
+    @Override
+    public String name() {
+        return "epidemic";
+    }
+
+    /**
+     * Create a message with the default initial hop count
+     * @param element The element of the message
+     * @return The new message
+     */
+    @Override
+    public IMessage<T> create(T element) {
+        return new Message<>(element);
+    }
+
+    /**
+     * Offer every message with hop count greater than 0 to every host
+     * @param message The message to offer
+     * @param hostId The ID of the other host, null if unknown
+     * @param destinations The hosts known to be interested in the message
+     * @return True if the message has hops left
+     */
+    @Override
+    public boolean shouldOffer(IMessage<T> message, UUID hostId, Set<UUID> destinations) {
+        return message.hopCount() > 0;
+    }
+
+    /**
+     * Send the message as it is, the receiver reduces its hop count
+     * @param message The message to send
+     * @param hostId The ID of the other host, null if unknown
+     * @return The same message
+     */
+    @Override
+    public IMessage<T> forward(IMessage<T> message, UUID hostId) {
+        return message;
+    }
+
+    /**
+     * Keep the message as it is
+     * @param message The sent message
+     * @param hostId The ID of the other host, null if unknown
+     * @return The same message
+     */
+    @Override
+    public IMessage<T> keep(IMessage<T> message, UUID hostId) {
+        return message;
+    }
+
+    /**
+     * Copy a received message reducing its hop count by one
+     * @param message The received message
+     * @return The message to store
+     */
+    @Override
+    public IMessage<T> receive(IMessage<T> message) {
+        return new Message<>(message);
+    }
+
+    /**
+     * Epidemic routing doesn't exchange any summary
+     * @return An empty summary
+     */
+    @Override
+    public Map<UUID, Double> summary() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Epidemic routing ignores encounters
+     * @param hostId The ID of the other host
+     * @param summary The summary of the other host
+     */
+    @Override
+    public void encounter(UUID hostId, Map<UUID, Double> summary) {
+    }
+
+}
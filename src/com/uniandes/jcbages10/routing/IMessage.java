@@ -8,6 +8,8 @@ public interface IMessage<T> {
 
     int hopCount();
 
+    int copies();
+
     T element();
 
 }
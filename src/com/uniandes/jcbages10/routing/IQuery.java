@@ -0,0 +1,17 @@
+package com.uniandes.jcbages10.routing;
+
+import java.util.UUID;
+
+public interface IQuery<T> {
+
+    UUID id();
+
+    UUID origin();
+
+    int hopCount();
+
+    long expiration();
+
+    T template();
+
+}
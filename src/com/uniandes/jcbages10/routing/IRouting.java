@@ -1,24 +1,69 @@
 package com.uniandes.jcbages10.routing;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface IRouting<T> {
 
     UUID id();
 
+    void restore();
+
+    void close();
+
     void add(T element);
 
+    void addMany(List<T> elements);
+
     void remove(T element);
 
+    void consume(T element);
+
+    boolean carries(T element);
+
+    Map<UUID, Long> tombstones();
+
+    Map<UUID, Long> tombstones(UUID hostId);
+
+    void receiveTombstones(Map<UUID, Long> tombstones);
+
     List<UUID> messagesIds();
 
+    List<UUID> messagesIds(UUID hostId);
+
     List<IMessage<T>> sendMessages(List<UUID> messagesIds);
 
+    List<IMessage<T>> sendMessages(UUID hostId, List<UUID> messagesIds);
+
     List<UUID> requestMessages(List<UUID> messagesIds);
 
     void receiveMessages(List<IMessage<T>> messages);
 
+    CompressionOffer compressionOffer();
+
+    byte[] sendEncodedMessages(UUID hostId, List<UUID> messagesIds, CompressionOffer offer);
+
+    void receiveEncodedMessages(byte[] payload);
+
+    Map<UUID, Integer> transferOffsets(List<UUID> messagesIds);
+
+    List<Chunk> sendChunks(UUID hostId, Map<UUID, Integer> offsets, int maxBytes);
+
+    void receiveChunks(List<Chunk> chunks);
+
     boolean shouldCommunicate(UUID hostId);
 
+    UUID query(T template);
+
+    void cancelQuery(UUID queryId);
+
+    List<IQuery<T>> queries();
+
+    List<IMessage<T>> answerQueries(List<IQuery<T>> queries);
+
+    Map<UUID, Double> summary();
+
+    void encounter(UUID hostId, Map<UUID, Double> summary);
+
 }
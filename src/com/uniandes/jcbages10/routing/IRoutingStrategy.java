@@ -0,0 +1,25 @@
+package com.uniandes.jcbages10.routing;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public interface IRoutingStrategy<T> {
+
+    String name();
+
+    IMessage<T> create(T element);
+
+    boolean shouldOffer(IMessage<T> message, UUID hostId, Set<UUID> destinations);
+
+    IMessage<T> forward(IMessage<T> message, UUID hostId);
+
+    IMessage<T> keep(IMessage<T> message, UUID hostId);
+
+    IMessage<T> receive(IMessage<T> message);
+
+    Map<UUID, Double> summary();
+
+    void encounter(UUID hostId, Map<UUID, Double> summary);
+
+}
@@ -1,13 +1,14 @@
 package com.uniandes.jcbages10.routing;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Message<T> implements IMessage<T> {
 
     /**
      * The default initial hop count
      */
-    private final static int INITIAL_HOP_COUNT = 5;
+    public final static int INITIAL_HOP_COUNT = 5;
 
     /**
      * The unique ID of the message
@@ -24,6 +25,11 @@ public class Message<T> implements IMessage<T> {
      */
     private int hopCount;
 
+    /**
+     * The number of copies this message is allowed to spread, used by copy budget strategies
+     */
+    private int copies;
+
     /**
      * Constructor for initializing a random id,
      * the message element with the given one, and
@@ -31,9 +37,22 @@ public class Message<T> implements IMessage<T> {
      * @param element The element of the message
      */
     public Message(T element) {
-        this.id = UUID.randomUUID();
+        this(element, INITIAL_HOP_COUNT, 1);
+    }
+
+    /**
+     * Constructor for initializing a random id,
+     * the message element, hop count & copies with the given ones,
+     * used by routing strategies to create new messages
+     * @param element The element of the message
+     * @param hopCount The hop count of the message
+     * @param copies The copies of the message
+     */
+    public Message(T element, int hopCount, int copies) {
+        this.id = randomId();
         this.element = element;
-        this.hopCount = INITIAL_HOP_COUNT;
+        this.hopCount = hopCount;
+        this.copies = copies;
     }
 
     /**
@@ -45,6 +64,49 @@ public class Message<T> implements IMessage<T> {
         this.id = message.id();
         this.element = message.element();
         this.hopCount = Math.max(0, message.hopCount() - 1);
+        this.copies = message.copies();
+    }
+
+    /**
+     * Constructor for initializing a message with another given one
+     * but with the given hop count & copies, used by routing strategies
+     * @param message The message to copy
+     * @param hopCount The hop count of the new message
+     * @param copies The copies of the new message
+     */
+    public Message(IMessage<T> message, int hopCount, int copies) {
+        this.id = message.id();
+        this.element = message.element();
+        this.hopCount = hopCount;
+        this.copies = copies;
+    }
+
+    /**
+     * Constructor for initializing every property of the message,
+     * used to rebuild messages decoded from the air
+     * @param id The ID of the message
+     * @param element The element of the message
+     * @param hopCount The hop count of the message
+     * @param copies The copies of the message
+     */
+    public Message(UUID id, T element, int hopCount, int copies) {
+        this.id = id;
+        this.element = element;
+        this.hopCount = hopCount;
+        this.copies = copies;
+    }
+
+    /**
+     * Generate a random version 4 UUID with a thread local generator, unlike
+     * UUID.randomUUID() it doesn't contend on a shared SecureRandom when
+     * many producers add messages at once, IDs only need to be unique
+     * @return The random ID
+     */
+    static UUID randomId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificantBits = (random.nextLong() & ~0xC000000000000000L) | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
     }
 
     /**
@@ -65,6 +127,15 @@ public class Message<T> implements IMessage<T> {
         return this.hopCount;
     }
 
+    /**
+     * Get the number of copies the message is allowed to spread
+     * @return The message copies
+     */
+    @Override
+    public int copies() {
+        return this.copies;
+    }
+
     /**
      * Get the message element
      * @return The message element
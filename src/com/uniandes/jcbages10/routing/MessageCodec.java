@@ -0,0 +1,322 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.tuplespace.BlobField;
+import com.uniandes.jcbages10.tuplespace.Field;
+import com.uniandes.jcbages10.tuplespace.IField;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+import com.uniandes.jcbages10.tuplespace.Tuple;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class MessageCodec {
+
+    /**
+     * Tags of the encoded elements, by their type
+     */
+    private final static byte NULL = 0;
+    private final static byte STRING = 1;
+    private final static byte BYTES = 2;
+    private final static byte INTEGER = 3;
+    private final static byte LONG = 4;
+    private final static byte DOUBLE = 5;
+    private final static byte FLOAT = 6;
+    private final static byte SHORT = 7;
+    private final static byte BYTE = 8;
+    private final static byte BOOLEAN = 9;
+    private final static byte CHARACTER = 10;
+    private final static byte ENUM = 11;
+    private final static byte SERIALIZED = 12;
+    private final static byte BLOB = 13;
+
+    /**
+     * Filter of the classes of serialized elements, decoded tuples come from other nodes:
+     * the process-wide allowlist if set through the jdk.serialFilter property, otherwise
+     * no class is accepted and only elements of the tagged types can be decoded
+     */
+    private final static ObjectInputFilter SERIAL_FILTER = ObjectInputFilter.Config.getSerialFilter() != null
+        ? ObjectInputFilter.Config.getSerialFilter()
+        : info -> info.serialClass() == null ? ObjectInputFilter.Status.UNDECIDED : ObjectInputFilter.Status.REJECTED;
+
+    /**
+     * Non instantiable helper
+     */
+    private MessageCodec() {
+    }
+
+    /**
+     * Encode the given message: id, hop count, copies & its tuple
+     * @param message The message to encode
+     * @return The encoded message
+     */
+    public static byte[] encode(IMessage<ITuple> message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(message.id().getMostSignificantBits());
+            output.writeLong(message.id().getLeastSignificantBits());
+            output.writeInt(message.hopCount());
+            output.writeInt(message.copies());
+            writeTuple(output, message.element());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Message can't be encoded", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a message encoded by encode()
+     * @param bytes The encoded message
+     * @return The decoded message
+     */
+    public static IMessage<ITuple> decode(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            UUID id = new UUID(input.readLong(), input.readLong());
+            int hopCount = input.readInt();
+            int copies = input.readInt();
+            return new Message<>(id, readTuple(input), hopCount, copies);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Malformed message", e);
+        }
+    }
+
+    /**
+     * Encode the given tuple alone: leasing & fields, elements of common types
+     * are written as they are, others with Java serialization. The encoding only
+     * depends on the tuple so every node holding a message encodes it the same
+     * @param tuple The tuple to encode
+     * @return The encoded tuple
+     */
+    public static byte[] encodeTuple(ITuple tuple) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            writeTuple(output, tuple);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Tuple can't be encoded", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a tuple encoded by encodeTuple()
+     * @param bytes The encoded tuple
+     * @return The decoded tuple
+     */
+    public static ITuple decodeTuple(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return readTuple(input);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Malformed tuple", e);
+        }
+    }
+
+    /**
+     * Write the leasing & fields of the given tuple
+     * @param output The stream to write to
+     * @param tuple The tuple to write
+     */
+    private static void writeTuple(DataOutputStream output, ITuple tuple) throws IOException {
+        output.writeLong(tuple.leasing());
+        output.writeInt(tuple.length());
+        for (int i = 0; i < tuple.length(); i++) {
+            IField field = tuple.get(i);
+            output.writeUTF(field.type().getName());
+            output.writeBoolean(field.isFormal());
+            if (field.isActual()) {
+                writeElement(output, field.element());
+            }
+        }
+    }
+
+    /**
+     * Read a tuple written by writeTuple(), blobs are rebuilt as blob fields,
+     * others through Field.of() so frequent values are shared by the received tuples.
+     * Field types are loaded without being initialized & elements must be of their type
+     * @param input The stream to read from
+     * @return The tuple
+     */
+    private static ITuple readTuple(DataInputStream input) throws IOException, ClassNotFoundException {
+        long leasing = input.readLong();
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Invalid number of fields " + length);
+        }
+        IField[] fields = new IField[length];
+        for (int i = 0; i < fields.length; i++) {
+            Class<?> type = Class.forName(input.readUTF(), false, MessageCodec.class.getClassLoader());
+            boolean isFormal = input.readBoolean();
+            if (isFormal) {
+                fields[i] = Field.of(type);
+            } else {
+                Object element = readElement(input, type);
+                fields[i] = element instanceof ByteBuffer
+                    ? new BlobField((ByteBuffer) element)
+                    : actualField(type, element);
+            }
+        }
+        return new Tuple(leasing, fields);
+    }
+
+    /**
+     * Return the actual field of the given type holding the given decoded element
+     * @param type The type of the field
+     * @param element The element, null or of the given type
+     * @return The field
+     */
+    private static <T> IField<T> actualField(Class<T> type, Object element) throws IOException {
+        if (element != null && !type.isInstance(element)) {
+            throw new IOException("Element of type " + element.getClass().getName() + " in a " + type.getName() + " field");
+        }
+        return Field.of(type, type.cast(element));
+    }
+
+    /**
+     * Write the given element preceded by its tag
+     * @param output The stream to write to
+     * @param element The element to write
+     */
+    private static void writeElement(DataOutputStream output, Object element) throws IOException {
+        if (element == null) {
+            output.writeByte(NULL);
+        } else if (element instanceof String) {
+            output.writeByte(STRING);
+            writeBytes(output, ((String) element).getBytes(StandardCharsets.UTF_8));
+        } else if (element instanceof byte[]) {
+            output.writeByte(BYTES);
+            writeBytes(output, (byte[]) element);
+        } else if (element instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) element);
+        } else if (element instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) element);
+        } else if (element instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) element);
+        } else if (element instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) element);
+        } else if (element instanceof Short) {
+            output.writeByte(SHORT);
+            output.writeShort((Short) element);
+        } else if (element instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) element);
+        } else if (element instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) element);
+        } else if (element instanceof Character) {
+            output.writeByte(CHARACTER);
+            output.writeChar((Character) element);
+        } else if (element instanceof ByteBuffer) {
+            output.writeByte(BLOB);
+            ByteBuffer buffer = ((ByteBuffer) element).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            writeBytes(output, bytes);
+        } else if (element instanceof Enum) {
+            output.writeByte(ENUM);
+            output.writeUTF(((Enum) element).name());
+        } else if (element instanceof Serializable) {
+            output.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+                objectOutput.writeObject(element);
+            }
+            writeBytes(output, bytes.toByteArray());
+        } else {
+            throw new IOException("Element of type " + element.getClass().getName() + " can't be encoded");
+        }
+    }
+
+    /**
+     * Read an element written by writeElement()
+     * @param input The stream to read from
+     * @param type The type of the field holding the element
+     * @return The element
+     */
+    private static Object readElement(DataInputStream input, Class<?> type) throws IOException, ClassNotFoundException {
+        byte tag = input.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(input), StandardCharsets.UTF_8);
+            case BYTES:
+                return readBytes(input);
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case SHORT:
+                return input.readShort();
+            case BYTE:
+                return input.readByte();
+            case BOOLEAN:
+                return input.readBoolean();
+            case CHARACTER:
+                return input.readChar();
+            case ENUM:
+                return enumConstant(type, input.readUTF());
+            case BLOB:
+                return ByteBuffer.wrap(readBytes(input));
+            case SERIALIZED:
+                try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+                    objectInput.setObjectInputFilter(SERIAL_FILTER);
+                    return objectInput.readObject();
+                }
+            default:
+                throw new IOException("Unknown element tag " + tag);
+        }
+    }
+
+    /**
+     * Return the constant of the given enum type with the given name
+     * @param type The enum type
+     * @param name The name of the constant
+     * @return The constant
+     */
+    private static Object enumConstant(Class<?> type, String name) throws IOException {
+        Object[] constants = type.getEnumConstants();
+        if (constants != null) {
+            for (Object constant : constants) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+        }
+        throw new IOException("Unknown constant " + name + " of " + type.getName());
+    }
+
+    /**
+     * Write the given bytes preceded by their length
+     * @param output The stream to write to
+     * @param bytes The bytes to write
+     */
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read bytes written by writeBytes(), the length can't exceed the bytes left
+     * so a malformed length never allocates more than the encoded tuple
+     * @param input The stream to read from
+     * @return The bytes read
+     */
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+}
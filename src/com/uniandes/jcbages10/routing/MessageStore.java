@@ -0,0 +1,624 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.metrics.Counter;
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.tuplespace.CoarseClock;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+class MessageStore {
+
+    /**
+     * Name of the append-only log of the carried messages
+     */
+    private final static String LOG_FILE = "messages.log";
+
+    /**
+     * Name of the file holding the ID of the host, kept across restarts
+     */
+    private final static String HOST_FILE = "host.id";
+
+    /**
+     * Kinds of records of the log
+     */
+    private final static byte PUT = 1;
+    private final static byte COPIES = 2;
+    private final static byte DELETE = 3;
+    private final static byte TOMBSTONE = 4;
+
+    /**
+     * Size of a record besides its tuple: length, kind, id, hop count, copies & CRC32
+     */
+    private final static int RECORD_OVERHEAD = 4 + 1 + 16 + 4 + 4 + 4;
+
+    /**
+     * Logs smaller than this number of bytes are never compacted
+     */
+    private final static long MIN_COMPACTION_SIZE = 1 << 20;
+
+    /**
+     * Logs are compacted once they are this many times larger than their live records
+     */
+    private final static int COMPACTION_RATIO = 2;
+
+    /**
+     * Size in bytes of the windows of the log mapped at a time while replaying it (64MB),
+     * so logs of any size can be replayed, records larger than this get their own window
+     */
+    private final static long MAP_WINDOW_SIZE = 1 << 26;
+
+    /**
+     * Directory of the log
+     */
+    private final Path directory;
+
+    /**
+     * Whether or not appended records are forced to the storage device by the maintenance thread
+     */
+    private final boolean sync;
+
+    /**
+     * Single daemon thread syncing & compacting the log, off the threads appending to it
+     */
+    private final ExecutorService maintenance;
+
+    /**
+     * Whether or not a sync of the log was requested & hasn't started yet
+     */
+    private boolean syncPending;
+
+    /**
+     * Whether or not a compaction of the log was requested & hasn't finished yet
+     */
+    private boolean compacting;
+
+    /**
+     * Size the log must reach before compacting it again after a failed compaction
+     */
+    private long compactionRetrySize;
+
+    /**
+     * Channel appending records to the log
+     */
+    private FileChannel log;
+
+    /**
+     * Size of the log in bytes
+     */
+    private long logSize;
+
+    /**
+     * Size in bytes of the records a compacted log would keep
+     */
+    private long liveSize;
+
+    /**
+     * Map from message.id() -> latest record of the carried message, in insertion order
+     */
+    private final Map<UUID, Entry> entries;
+
+    /**
+     * Map from message.id() -> expiration of the tombstone
+     */
+    private final Map<UUID, Long> tombstones;
+
+    /**
+     * Number of times the log was compacted
+     */
+    private final Counter compactions;
+
+    /**
+     * Number of compactions given up, the log kept growing instead
+     */
+    private final Counter failedCompactions;
+
+    /**
+     * Number of syncs of the log that failed
+     */
+    private final Counter failedSyncs;
+
+    /**
+     * Constructor for opening the log of the given directory, creating it if needed,
+     * the records are read through memory mapped windows of the log & a torn last
+     * record, left by a crash while appending, is cut off
+     * @param directory The directory of the log
+     * @param sync Whether or not appended records are forced to the storage device
+     * @param metrics The metrics of the routing
+     */
+    MessageStore(Path directory, boolean sync, MetricsRegistry metrics) {
+        this.directory = directory;
+        this.sync = sync;
+        this.entries = new LinkedHashMap<>();
+        this.tombstones = new HashMap<>();
+        this.syncPending = false;
+        this.compacting = false;
+        this.compactionRetrySize = 0;
+        try {
+            Files.createDirectories(directory);
+            this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.logSize = replay();
+            this.log.truncate(this.logSize);
+            this.log.position(this.logSize);
+        } catch (IOException e) {
+            throw new IllegalStateException("Message store can't be opened at " + directory, e);
+        }
+        this.compactions = metrics.counter("routing.store.compactions");
+        this.failedCompactions = metrics.counter("routing.store.compactions.failed");
+        this.failedSyncs = metrics.counter("routing.store.syncs.failed");
+        this.maintenance = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("routing.store.bytes", () -> this.logSize);
+    }
+
+    /**
+     * Return the ID of the host kept in the directory, storing the given one if none yet
+     * @param id The ID of the host to store if none yet
+     * @return The ID of the host
+     */
+    synchronized UUID hostId(UUID id) {
+        Path file = this.directory.resolve(HOST_FILE);
+        try {
+            if (Files.exists(file)) {
+                return UUID.fromString(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+            }
+            Files.write(file, id.toString().getBytes(StandardCharsets.UTF_8));
+            return id;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Host ID can't be read at " + file, e);
+        }
+    }
+
+    /**
+     * Return the carried messages of the log, with their IDs, hop counts & copies,
+     * in the order they were first stored
+     * @return The stored messages
+     */
+    synchronized List<IMessage<ITuple>> messages() {
+        List<IMessage<ITuple>> messages = new ArrayList<>(this.entries.size());
+        try {
+            for (Map.Entry<UUID, Entry> entry : this.entries.entrySet()) {
+                Entry record = entry.getValue();
+                byte[] tuple = readTuple(this.log, record);
+                messages.add(new Message<>(entry.getKey(), MessageCodec.decodeTuple(tuple), record.hopCount, record.copies));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Message store can't be read", e);
+        }
+        return messages;
+    }
+
+    /**
+     * Return the unexpired tombstones of the log
+     * @param currentTime The current time
+     * @return Map from message.id() -> expiration of the tombstone
+     */
+    synchronized Map<UUID, Long> tombstones(long currentTime) {
+        this.tombstones.values().removeIf(expiration -> expiration < currentTime);
+        return new HashMap<>(this.tombstones);
+    }
+
+    /**
+     * Store the given messages, new ones with their tuples & known ones only
+     * with their new hop counts & copies, in a single write
+     * @param messages The messages to store
+     */
+    synchronized void put(Collection<IMessage<ITuple>> messages) {
+        List<byte[]> encodedTuples = new ArrayList<>(messages.size());
+        int size = 0;
+        for (IMessage<ITuple> message : messages) {
+            byte[] tuple = this.entries.containsKey(message.id()) ? null : MessageCodec.encodeTuple(message.element());
+            encodedTuples.add(tuple);
+            size += RECORD_OVERHEAD + (tuple == null ? 0 : tuple.length);
+        }
+        ByteBuffer records = ByteBuffer.allocate(size);
+
+        Iterator<byte[]> tuples = encodedTuples.iterator();
+        for (IMessage<ITuple> message : messages) {
+            byte[] tuple = tuples.next();
+            int start = records.position();
+            writeRecord(records, tuple == null ? COPIES : PUT, message.id(), message.hopCount(), message.copies(), tuple);
+            Entry entry = this.entries.get(message.id());
+            if (tuple != null) {
+                entry = new Entry();
+                entry.tupleOffset = this.logSize + start + RECORD_OVERHEAD - 4;
+                entry.tupleLength = tuple.length;
+                entry.recordSize = records.position() - start;
+                this.entries.put(message.id(), entry);
+                this.liveSize += entry.recordSize;
+            }
+            entry.hopCount = message.hopCount();
+            entry.copies = message.copies();
+        }
+        records.flip();
+        append(records);
+    }
+
+    /**
+     * Forget the given message, leaving a tombstone if it was consumed
+     * @param id The ID of the removed message
+     * @param tombstone The expiration of its tombstone or 0 if it wasn't consumed
+     */
+    synchronized void delete(UUID id, long tombstone) {
+        Entry entry = this.entries.remove(id);
+        if (entry == null && tombstone == 0) {
+            return;
+        }
+        if (entry != null) {
+            this.liveSize -= entry.recordSize;
+        }
+        ByteBuffer records = ByteBuffer.allocate(RECORD_OVERHEAD * 2);
+        if (entry != null) {
+            writeRecord(records, DELETE, id, 0, 0, null);
+        }
+        if (tombstone != 0) {
+            writeRecord(records, TOMBSTONE, id, (int) (tombstone >>> 32), (int) tombstone, null);
+            if (this.tombstones.put(id, tombstone) == null) {
+                this.liveSize += RECORD_OVERHEAD;
+            }
+        }
+        records.flip();
+        append(records);
+    }
+
+    /**
+     * Close the log once the requested syncs & compaction are done
+     */
+    void close() {
+        this.maintenance.shutdown();
+        try {
+            this.maintenance.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                this.log.close();
+            } catch (IOException e) {
+                throw new IllegalStateException("Message store can't be closed", e);
+            }
+        }
+    }
+
+    /**
+     * Append the given records to the log & request the maintenance thread to force them
+     * to the storage device if synced, grouping the records appended meanwhile in a single
+     * sync, and to compact the log if it's large enough & mostly made of deleted or outdated
+     * records, so appending never waits for either. A failed compaction leaves the log as
+     * it was, it's retried once the log grew by the min compaction size
+     * @param records The records to append, ready to be read
+     */
+    private void append(ByteBuffer records) {
+        try {
+            while (records.hasRemaining()) {
+                this.logSize += this.log.write(records);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Message store can't be written", e);
+        }
+        if (this.sync && !this.syncPending) {
+            this.syncPending = true;
+            this.maintenance.execute(this::syncLog);
+        }
+        if (!this.compacting && this.logSize > MIN_COMPACTION_SIZE && this.logSize > COMPACTION_RATIO * this.liveSize
+                && this.logSize >= this.compactionRetrySize) {
+            this.compacting = true;
+            this.maintenance.execute(this::compactLog);
+        }
+    }
+
+    /**
+     * Force the records appended so far to the storage device, run by the maintenance thread
+     */
+    private void syncLog() {
+        FileChannel log;
+        synchronized (this) {
+            this.syncPending = false;
+            log = this.log;
+        }
+        try {
+            log.force(false);
+        } catch (IOException e) {
+            this.failedSyncs.increment();
+        }
+    }
+
+    /**
+     * Compact the log, run by the maintenance thread, pushing the next attempt
+     * back until the log grows by the min compaction size if it fails
+     */
+    private void compactLog() {
+        try {
+            compact();
+            this.compactions.increment();
+        } catch (IOException e) {
+            this.failedCompactions.increment();
+            synchronized (this) {
+                this.compactionRetrySize = this.logSize + MIN_COMPACTION_SIZE;
+            }
+        } finally {
+            synchronized (this) {
+                this.compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Rewrite the log with a single record per carried message, holding its latest hop count
+     * & copies, and per unexpired tombstone. The records are read from a snapshot of the log
+     * & written without holding the store, which only waits for the records appended
+     * meanwhile to be copied after them & the swap. The new log replaces the old one
+     * atomically so a crash in between leaves either of them. The new log is kept open
+     * across the move and the old one is only closed once it was replaced, so a failed
+     * move keeps using it
+     */
+    private void compact() throws IOException {
+        Path compacted = this.directory.resolve(LOG_FILE + ".compacted");
+        long currentTime = CoarseClock.millis();
+        FileChannel source;
+        long snapshotSize;
+        Map<UUID, Entry> snapshot = new LinkedHashMap<>();
+        Map<UUID, Long> tombstones = new HashMap<>();
+        synchronized (this) {
+            source = this.log;
+            snapshotSize = this.logSize;
+            this.entries.forEach((id, record) -> snapshot.put(id, record.copy()));
+            this.tombstones.forEach((id, expiration) -> {
+                if (expiration >= currentTime) {
+                    tombstones.put(id, expiration);
+                }
+            });
+        }
+
+        long size = 0;
+        Map<UUID, Long> tupleOffsets = new HashMap<>();
+        FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            for (Map.Entry<UUID, Entry> entry : snapshot.entrySet()) {
+                Entry record = entry.getValue();
+                byte[] tuple = readTuple(source, record);
+                ByteBuffer records = ByteBuffer.allocate(RECORD_OVERHEAD + tuple.length);
+                writeRecord(records, PUT, entry.getKey(), record.hopCount, record.copies, tuple);
+                tupleOffsets.put(entry.getKey(), size + RECORD_OVERHEAD - 4);
+                size += write(output, records);
+            }
+            for (Map.Entry<UUID, Long> tombstone : tombstones.entrySet()) {
+                ByteBuffer records = ByteBuffer.allocate(RECORD_OVERHEAD);
+                long expiration = tombstone.getValue();
+                writeRecord(records, TOMBSTONE, tombstone.getKey(), (int) (expiration >>> 32), (int) expiration, null);
+                size += write(output, records);
+            }
+            output.force(true);
+        } catch (IOException e) {
+            output.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+
+        synchronized (this) {
+            long tailSize = this.logSize - snapshotSize;
+            try {
+                if (!this.log.isOpen()) {
+                    throw new ClosedChannelException();
+                }
+                for (long copied = 0; copied < tailSize; ) {
+                    copied += this.log.transferTo(snapshotSize + copied, tailSize - copied, output);
+                }
+                output.force(true);
+                output.position(size + tailSize);
+                Files.move(compacted, this.directory.resolve(LOG_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                output.close();
+                Files.deleteIfExists(compacted);
+                throw e;
+            }
+
+            FileChannel replaced = this.log;
+            this.log = output;
+            this.liveSize = 0;
+            for (Map.Entry<UUID, Entry> entry : this.entries.entrySet()) {
+                Entry record = entry.getValue();
+                record.tupleOffset = record.tupleOffset < snapshotSize
+                    ? tupleOffsets.get(entry.getKey())
+                    : record.tupleOffset - snapshotSize + size;
+                this.liveSize += record.recordSize;
+            }
+            this.tombstones.values().removeIf(expiration -> expiration < currentTime);
+            this.liveSize += (long) this.tombstones.size() * RECORD_OVERHEAD;
+            this.logSize = size + tailSize;
+            replaced.close();
+        }
+    }
+
+    /**
+     * Read every record of the log through memory mapped windows, rebuilding the
+     * carried messages & tombstones, until the end or the first torn record
+     * @return The size of the valid records
+     */
+    private long replay() throws IOException {
+        long size = this.log.size();
+        long position = 0;
+        long windowStart = 0;
+        MappedByteBuffer window = null;
+        CRC32 checksum = new CRC32();
+        while (size - position >= RECORD_OVERHEAD) {
+            if (window == null || position + RECORD_OVERHEAD > windowStart + window.capacity()) {
+                windowStart = position;
+                window = map(windowStart, RECORD_OVERHEAD, size);
+            }
+            int start = (int) (position - windowStart);
+            int length = window.getInt(start);
+            if (length < RECORD_OVERHEAD - 8 || length > size - position - 8) {
+                break;
+            }
+            if (start + length + 8 > window.capacity()) {
+                windowStart = position;
+                window = map(windowStart, length + 8, size);
+                start = 0;
+            }
+            checksum.reset();
+            checksum.update(window.slice(start + 4, length));
+            if ((int) checksum.getValue() != window.getInt(start + 4 + length)) {
+                break;
+            }
+
+            byte kind = window.get(start + 4);
+            UUID id = new UUID(window.getLong(start + 5), window.getLong(start + 13));
+            int hopCount = window.getInt(start + 21);
+            int copies = window.getInt(start + 25);
+            int recordSize = length + 8;
+            if (kind == PUT) {
+                Entry entry = this.entries.remove(id);
+                if (entry != null) {
+                    this.liveSize -= entry.recordSize;
+                }
+                entry = new Entry();
+                entry.tupleOffset = position + RECORD_OVERHEAD - 4;
+                entry.tupleLength = length - (RECORD_OVERHEAD - 8);
+                entry.recordSize = recordSize;
+                entry.hopCount = hopCount;
+                entry.copies = copies;
+                this.entries.put(id, entry);
+                this.liveSize += recordSize;
+            } else if (kind == COPIES && this.entries.containsKey(id)) {
+                this.entries.get(id).hopCount = hopCount;
+                this.entries.get(id).copies = copies;
+            } else if (kind == DELETE) {
+                Entry entry = this.entries.remove(id);
+                if (entry != null) {
+                    this.liveSize -= entry.recordSize;
+                }
+            } else if (kind == TOMBSTONE) {
+                long expiration = ((long) hopCount << 32) | (copies & 0xffffffffL);
+                if (this.tombstones.put(id, expiration) == null) {
+                    this.liveSize += recordSize;
+                }
+            }
+            position += recordSize;
+        }
+        return position;
+    }
+
+    /**
+     * Map the window of the log starting at the given position, as large as
+     * the window size or the given length, without going past the given size
+     * @param position The position of the window in the log
+     * @param length The min length of the window
+     * @param size The size of the log
+     * @return The mapped window
+     */
+    private MappedByteBuffer map(long position, long length, long size) throws IOException {
+        long windowSize = Math.min(size - position, Math.max(MAP_WINDOW_SIZE, length));
+        return this.log.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+    }
+
+    /**
+     * Read the encoded tuple of the given record from the given log
+     * @param log The log holding the record
+     * @param record The latest record of a carried message
+     * @return The encoded tuple
+     */
+    private static byte[] readTuple(FileChannel log, Entry record) throws IOException {
+        ByteBuffer tuple = ByteBuffer.allocate(record.tupleLength);
+        while (tuple.hasRemaining()) {
+            if (log.read(tuple, record.tupleOffset + tuple.position()) < 0) {
+                throw new IOException("Message store log ends within a record");
+            }
+        }
+        return tuple.array();
+    }
+
+    /**
+     * Write a record into the given buffer: length, kind, id, hop count,
+     * copies, tuple if any & the CRC32 of everything but the length
+     * @param buffer The buffer to write to
+     * @param kind The kind of record
+     * @param id The ID of the message
+     * @param hopCount The hop count of the message
+     * @param copies The copies of the message
+     * @param tuple The encoded tuple of the message or null if none
+     */
+    private static void writeRecord(ByteBuffer buffer, byte kind, UUID id, int hopCount, int copies, byte[] tuple) {
+        int start = buffer.position();
+        int length = RECORD_OVERHEAD - 8 + (tuple == null ? 0 : tuple.length);
+        buffer.putInt(length);
+        buffer.put(kind);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        buffer.putInt(hopCount);
+        buffer.putInt(copies);
+        if (tuple != null) {
+            buffer.put(tuple);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().position(start + 4).limit(start + 4 + length).slice());
+        buffer.putInt((int) checksum.getValue());
+    }
+
+    /**
+     * Write the whole given buffer, from its beginning, to the given channel
+     * @param channel The channel to write to
+     * @param buffer The buffer to write
+     * @return The number of bytes written
+     */
+    private static int write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int size = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return size;
+    }
+
+    /**
+     * Latest record of a carried message: where its tuple is in the log & its current hop count
+     */
+    private static class Entry {
+
+        private long tupleOffset;
+
+        private int tupleLength;
+
+        private int recordSize;
+
+        private int hopCount;
+
+        private int copies;
+
+        /**
+         * Return a copy of this record, to be read out of the store lock
+         * @return The copy
+         */
+        private Entry copy() {
+            Entry copy = new Entry();
+            copy.tupleOffset = this.tupleOffset;
+            copy.tupleLength = this.tupleLength;
+            copy.recordSize = this.recordSize;
+            copy.hopCount = this.hopCount;
+            copy.copies = this.copies;
+            return copy;
+        }
+
+    }
+
+}
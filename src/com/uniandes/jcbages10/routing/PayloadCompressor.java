@@ -0,0 +1,370 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.metrics.Counter;
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class PayloadCompressor {
+
+    /**
+     * Version of the payload format
+     */
+    private final static byte VERSION = 1;
+
+    /**
+     * Flag of payloads referencing a dictionary
+     */
+    private final static byte WITH_DICTIONARY = 1;
+
+    /**
+     * Flag of payloads carrying the dictionary they reference
+     */
+    private final static byte EMBEDDED_DICTIONARY = 2;
+
+    /**
+     * Kinds of encoded messages
+     */
+    private final static byte RAW = 0;
+    private final static byte DEFLATED = 1;
+
+    /**
+     * Max size of a dictionary, deflate only looks back 32KB anyway
+     */
+    private final static int DICTIONARY_SIZE = 16384;
+
+    /**
+     * Max number of bytes of an encoded message sampled for training
+     */
+    private final static int SAMPLE_SIZE = 1024;
+
+    /**
+     * Number of new samples before the first dictionary is trained
+     */
+    private final static int FIRST_TRAINING = 16;
+
+    /**
+     * Number of new samples before the dictionary is trained again,
+     * every new dictionary has to be sent once to every peer
+     */
+    private final static int TRAINING_INTERVAL = 256;
+
+    /**
+     * Max number of dictionaries received from other nodes to remember
+     */
+    private final static int MAX_DICTIONARIES = 8;
+
+    /**
+     * Whether or not messages are deflated
+     */
+    private final boolean enabled;
+
+    /**
+     * Encoded messages smaller than this number of bytes are sent raw
+     */
+    private final int threshold;
+
+    /**
+     * Max size in bytes of a decoded message, deflated ones are not inflated past it
+     */
+    private final int maxMessageSize;
+
+    /**
+     * Recent samples of large encoded messages, the newest last
+     */
+    private final Deque<byte[]> samples;
+
+    /**
+     * Total size of the samples
+     */
+    private int samplesSize;
+
+    /**
+     * Number of samples taken since the last training
+     */
+    private int newSamples;
+
+    /**
+     * ID of the dictionary trained by this host, 0 if none yet
+     */
+    private int dictionaryId;
+
+    /**
+     * Map from dictionary ID -> dictionary, both trained by this host & received from others
+     */
+    private final Map<Integer, byte[]> dictionaries;
+
+    /**
+     * Size of the encoded messages before compression
+     */
+    private final Counter rawBytes;
+
+    /**
+     * Size of the payloads sent
+     */
+    private final Counter encodedBytes;
+
+    /**
+     * Constructor for initializing the compressor & its metrics
+     * @param enabled Whether or not messages are deflated
+     * @param threshold Encoded messages smaller than this number of bytes are sent raw
+     * @param maxMessageSize The max size in bytes of a decoded message
+     * @param metrics The metrics of the routing
+     */
+    PayloadCompressor(boolean enabled, int threshold, int maxMessageSize, MetricsRegistry metrics) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.maxMessageSize = maxMessageSize;
+        this.samples = new ArrayDeque<>();
+        this.dictionaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > MAX_DICTIONARIES && eldest.getKey() != PayloadCompressor.this.dictionaryId;
+            }
+        };
+        this.rawBytes = metrics.counter("routing.bytes.raw");
+        this.encodedBytes = metrics.counter("routing.bytes.encoded");
+    }
+
+    /**
+     * Return what this host can decode, to be given to the encoding node
+     * @return The compression offer of this host
+     */
+    synchronized CompressionOffer offer() {
+        return new CompressionOffer(this.enabled, this.dictionaries.keySet());
+    }
+
+    /**
+     * Encode the given messages for the node with the given offer, messages at least as
+     * large as the threshold are deflated with the current dictionary if the node accepts it,
+     * the dictionary is sent along if the node doesn't hold it yet
+     * @param messages The messages to encode
+     * @param offer The compression offer of the receiving node
+     * @return The payload
+     */
+    synchronized byte[] encode(List<IMessage<ITuple>> messages, CompressionOffer offer) {
+        boolean deflate = this.enabled && offer.acceptsDeflate();
+        byte[] dictionary = deflate ? this.dictionaries.get(this.dictionaryId) : null;
+        boolean embedDictionary = dictionary != null && !offer.dictionaries().contains(this.dictionaryId);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(VERSION);
+            output.writeByte((dictionary != null ? WITH_DICTIONARY : 0) | (embedDictionary ? EMBEDDED_DICTIONARY : 0));
+            if (dictionary != null) {
+                output.writeInt(this.dictionaryId);
+            }
+            if (embedDictionary) {
+                writeBytes(output, deflate(dictionary, null));
+            }
+
+            output.writeInt(messages.size());
+            for (IMessage<ITuple> message : messages) {
+                byte[] encoded = MessageCodec.encode(message);
+                this.rawBytes.add(encoded.length);
+                if (deflate && encoded.length >= this.threshold) {
+                    byte[] deflated = deflate(encoded, dictionary);
+                    if (deflated.length < encoded.length) {
+                        output.writeByte(DEFLATED);
+                        output.writeInt(encoded.length);
+                        writeBytes(output, deflated);
+                        sample(encoded);
+                        continue;
+                    }
+                }
+                output.writeByte(RAW);
+                writeBytes(output, encoded);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Payload can't be encoded", e);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        this.encodedBytes.add(payload.length);
+        return payload;
+    }
+
+    /**
+     * Decode a payload encoded by encode(), remembering the dictionary it carries if any.
+     * Lengths come from the other node, messages larger than the max message size
+     * are rejected before they are allocated or inflated
+     * @param payload The payload
+     * @return The decoded messages
+     */
+    synchronized List<IMessage<ITuple>> decode(byte[] payload) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown payload version " + version);
+            }
+            byte flags = input.readByte();
+            byte[] dictionary = null;
+            if ((flags & WITH_DICTIONARY) != 0) {
+                int id = input.readInt();
+                if ((flags & EMBEDDED_DICTIONARY) != 0) {
+                    this.dictionaries.put(id, inflate(readBytes(input, this.maxMessageSize), DICTIONARY_SIZE, null));
+                }
+                dictionary = this.dictionaries.get(id);
+                if (dictionary == null) {
+                    throw new IllegalArgumentException("Unknown dictionary " + id);
+                }
+            }
+
+            int size = input.readInt();
+            if (size < 0 || size > input.available()) {
+                throw new IllegalArgumentException("Invalid number of messages " + size);
+            }
+            List<IMessage<ITuple>> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte kind = input.readByte();
+                if (kind == DEFLATED) {
+                    int length = input.readInt();
+                    if (length < 0 || length > this.maxMessageSize) {
+                        throw new IllegalArgumentException("Invalid message length " + length);
+                    }
+                    byte[] encoded = inflate(readBytes(input, this.maxMessageSize), length, dictionary);
+                    messages.add(MessageCodec.decode(encoded));
+                    sample(encoded);
+                } else {
+                    messages.add(MessageCodec.decode(readBytes(input, this.maxMessageSize)));
+                }
+            }
+            return messages;
+        } catch (IOException | DataFormatException e) {
+            throw new IllegalArgumentException("Malformed payload", e);
+        }
+    }
+
+    /**
+     * Keep the beginning of the given large encoded message as a sample,
+     * training a new dictionary once enough new samples were taken
+     * @param encoded The encoded message
+     */
+    private void sample(byte[] encoded) {
+        byte[] sample = Arrays.copyOf(encoded, Math.min(encoded.length, SAMPLE_SIZE));
+        this.samples.addLast(sample);
+        this.samplesSize += sample.length;
+        while (this.samplesSize > DICTIONARY_SIZE) {
+            this.samplesSize -= this.samples.removeFirst().length;
+        }
+
+        this.newSamples++;
+        boolean hasDictionary = this.dictionaries.containsKey(this.dictionaryId);
+        if (this.newSamples >= (hasDictionary ? TRAINING_INTERVAL : FIRST_TRAINING)) {
+            train();
+        }
+    }
+
+    /**
+     * Train a new dictionary out of the samples, the newest samples go last
+     * as deflate finds the closest matches cheaper
+     */
+    private void train() {
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(this.samplesSize);
+        for (byte[] sample : this.samples) {
+            dictionary.write(sample, 0, sample.length);
+        }
+        byte[] bytes = dictionary.toByteArray();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        this.dictionaries.remove(this.dictionaryId);
+        this.dictionaryId = (int) checksum.getValue();
+        this.dictionaries.put(this.dictionaryId, bytes);
+        this.newSamples = 0;
+    }
+
+    /**
+     * Deflate the given bytes with the given dictionary
+     * @param bytes The bytes to deflate
+     * @param dictionary The preset dictionary or null if none
+     * @return The deflated bytes
+     */
+    private static byte[] deflate(byte[] bytes, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflate the given bytes with the given dictionary until the end of the deflated
+     * stream, output grows as it's inflated so a lying length can't allocate it upfront
+     * @param bytes The bytes to inflate
+     * @param maxLength The max length of the inflated bytes
+     * @param dictionary The preset dictionary or null if none
+     * @return The inflated bytes
+     */
+    private static byte[] inflate(byte[] bytes, int maxLength, byte[] dictionary) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.min(maxLength, bytes.length * 4 + 64));
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer, 0, Math.min(buffer.length, maxLength - output.size() + 1));
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    if (dictionary == null) {
+                        throw new DataFormatException("Missing dictionary");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (inflated == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("Truncated deflated bytes");
+                }
+                output.write(buffer, 0, inflated);
+                if (output.size() > maxLength) {
+                    throw new DataFormatException("Inflated bytes larger than " + maxLength);
+                }
+            }
+            return output.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Write the given bytes preceded by their length
+     * @param output The stream to write to
+     * @param bytes The bytes to write
+     */
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read bytes written by writeBytes(), no more than the given max
+     * nor than the bytes left in the payload
+     * @param input The stream to read from
+     * @param maxLength The max number of bytes
+     * @return The bytes read
+     */
+    private static byte[] readBytes(DataInputStream input, int maxLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > maxLength || length > input.available()) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.tuplespace.CoarseClock;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class ProphetStrategy<T> implements IRoutingStrategy<T> {
+
+    /**
+     * Predictability given to a host on every encounter
+     */
+    private final static double P_INIT = 0.75;
+
+    /**
+     * Weight of the transitive predictabilities
+     */
+    private final static double BETA = 0.25;
+
+    /**
+     * Aging factor applied per time unit
+     */
+    private final static double GAMMA = 0.98;
+
+    /**
+     * Length of an aging time unit in milliseconds
+     */
+    private final static long TIME_UNIT = 30000;
+
+    /**
+     * Predictabilities aged below this are forgotten along with the summary of their host
+     */
+    private final static double MIN_PREDICTABILITY = 0.01;
+
+    /**
+     * Maximum number of hosts whose summary is remembered, the least recently encountered
+     * ones are forgotten first, and of predictabilities kept per summary
+     */
+    private final static int MAX_NUMBER_OF_SUMMARIES = 100;
+
+    /**
+     * Map from host ID -> predictability of delivering to the host
+     */
+    private final Map<UUID, Double> predictabilities;
+
+    /**
+     * Map from host ID -> its summary received on the last encounter, in encounter order
+     */
+    private final Map<UUID, Map<UUID, Double>> hostsSummaries;
+
+    /**
+     * Time the predictabilities were aged for the last time
+     */
+    private long lastAging;
+
+    /**
+     * Constructor for initializing empty predictabilities
+     */
+    public ProphetStrategy() {
+        this.predictabilities = new HashMap<>();
+        this.hostsSummaries = new LinkedHashMap<UUID, Map<UUID, Double>>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Map<UUID, Double>> eldest) {
+                return size() > MAX_NUMBER_OF_SUMMARIES;
+            }
+        };
+        this.lastAging = CoarseClock.millis();
+    }
+
+    /**
+     * Return the name of the strategy
+     * @return The name of the strategy
+     */
+    @Override
+    public String name() {
+        return "prophet";
+    }
+
+    /**
+     * Create a message with the default initial hop count
+     * @param element The element of the message
+     * @return The new message
+     */
+    @Override
+    public IMessage<T> create(T element) {
+        return new Message<>(element);
+    }
+
+    /**
+     * Offer a message with hops left to the other host if it's a destination
+     * or its predictability of delivering to any destination is greater than this host's.
+     * Tuples without known destinations go to hosts better connected overall
+     * @param message The message to offer
+     * @param hostId The ID of the other host, null if unknown
+     * @param destinations The hosts known to be interested in the message
+     * @return True if the message should be offered
+     */
+    @Override
+    public synchronized boolean shouldOffer(IMessage<T> message, UUID hostId, Set<UUID> destinations) {
+        if (message.hopCount() <= 0) {
+            return false;
+        }
+        if (hostId == null || destinations.contains(hostId)) {
+            return true;
+        }
+
+        Map<UUID, Double> hostSummary = this.hostsSummaries.get(hostId);
+        if (hostSummary == null) {
+            return true;
+        }
+        if (destinations.isEmpty()) {
+            return total(hostSummary) > total(this.predictabilities);
+        }
+        for (UUID destination : destinations) {
+            double hostPredictability = hostSummary.getOrDefault(destination, 0.0);
+            if (hostPredictability > this.predictabilities.getOrDefault(destination, 0.0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Send the message as it is, the receiver reduces its hop count
+     * @param message The message to send
+     * @param hostId The ID of the other host, null if unknown
+     * @return The same message
+     */
+    @Override
+    public IMessage<T> forward(IMessage<T> message, UUID hostId) {
+        return message;
+    }
+
+    /**
+     * Keep the message as it is
+     * @param message The sent message
+     * @param hostId The ID of the other host, null if unknown
+     * @return The same message
+     */
+    @Override
+    public IMessage<T> keep(IMessage<T> message, UUID hostId) {
+        return message;
+    }
+
+    /**
+     * Copy a received message reducing its hop count by one
+     * @param message The received message
+     * @return The message to store
+     */
+    @Override
+    public IMessage<T> receive(IMessage<T> message) {
+        return new Message<>(message);
+    }
+
+    /**
+     * Return the aged delivery predictabilities of this host
+     * @return Map from host ID -> predictability
+     */
+    @Override
+    public synchronized Map<UUID, Double> summary() {
+        age();
+        return new HashMap<>(this.predictabilities);
+    }
+
+    /**
+     * Update the predictabilities on an encounter with the given host:
+     * P(a, b) = P(a, b) + (1 - P(a, b)) * P_INIT for the host itself, and
+     * P(a, c) = max(P(a, c), P(a, b) * P(b, c) * BETA) transitively.
+     * Only the highest predictabilities of the summary are remembered
+     * @param hostId The ID of the other host
+     * @param summary The summary of the other host
+     */
+    @Override
+    public synchronized void encounter(UUID hostId, Map<UUID, Double> summary) {
+        age();
+        double previous = this.predictabilities.getOrDefault(hostId, 0.0);
+        double direct = previous + (1 - previous) * P_INIT;
+        this.predictabilities.put(hostId, direct);
+
+        for (Map.Entry<UUID, Double> entry : summary.entrySet()) {
+            UUID destination = entry.getKey();
+            if (destination.equals(hostId)) {
+                continue;
+            }
+            double transitive = direct * entry.getValue() * BETA;
+            if (transitive >= MIN_PREDICTABILITY) {
+                this.predictabilities.merge(destination, transitive, Math::max);
+            }
+        }
+
+        Map<UUID, Double> hostSummary = new HashMap<>();
+        summary.entrySet().stream()
+            .filter(entry -> entry.getValue() >= MIN_PREDICTABILITY)
+            .sorted(Map.Entry.<UUID, Double>comparingByValue().reversed())
+            .limit(MAX_NUMBER_OF_SUMMARIES)
+            .forEach(entry -> hostSummary.put(entry.getKey(), entry.getValue()));
+        this.hostsSummaries.remove(hostId);
+        this.hostsSummaries.put(hostId, hostSummary);
+    }
+
+    /**
+     * Age the predictabilities by GAMMA per time unit elapsed since the last aging,
+     * forgetting the hosts whose predictability falls below the minimum
+     */
+    private void age() {
+        long currentTime = CoarseClock.millis();
+        long timeUnits = (currentTime - this.lastAging) / TIME_UNIT;
+        if (timeUnits > 0) {
+            double factor = Math.pow(GAMMA, timeUnits);
+            this.predictabilities.replaceAll((host, predictability) -> predictability * factor);
+            this.predictabilities.values().removeIf(predictability -> predictability < MIN_PREDICTABILITY);
+            this.hostsSummaries.keySet().retainAll(this.predictabilities.keySet());
+            this.lastAging += timeUnits * TIME_UNIT;
+        }
+    }
+
+    /**
+     * Return the sum of the given predictabilities, how well connected a host is overall
+     * @param predictabilities Map from host ID -> predictability
+     * @return The sum of the predictabilities
+     */
+    private static double total(Map<UUID, Double> predictabilities) {
+        double total = 0;
+        for (double predictability : predictabilities.values()) {
+            total += predictability;
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.uniandes.jcbages10.routing;
+
+import java.util.UUID;
+
+public class Query<T> implements IQuery<T> {
+
+    /**
+     * The default initial hop count, queries travel less than messages
+     */
+    private final static int INITIAL_HOP_COUNT = 3;
+
+    /**
+     * The unique ID of the query
+     */
+    private UUID id;
+
+    /**
+     * The ID of the host that issued the query
+     */
+    private UUID origin;
+
+    /**
+     * The hop count of the query
+     */
+    private int hopCount;
+
+    /**
+     * The time after which the query is discarded
+     */
+    private long expiration;
+
+    /**
+     * The template to match
+     */
+    private T template;
+
+    /**
+     * Constructor for initializing a query with a random id,
+     * the given template & origin and the default initial hop count
+     * @param template The template to match
+     * @param origin The ID of the host issuing the query
+     * @param expiration The time after which the query is discarded
+     */
+    public Query(T template, UUID origin, long expiration) {
+        this.id = UUID.randomUUID();
+        this.origin = origin;
+        this.hopCount = INITIAL_HOP_COUNT;
+        this.expiration = expiration;
+        this.template = template;
+    }
+
+    /**
+     * Constructor for initializing a query with another given one,
+     * this constructor is for received queries so it reduces hop count by one
+     * @param query The received query to copy
+     */
+    public Query(IQuery<T> query) {
+        this.id = query.id();
+        this.origin = query.origin();
+        this.hopCount = Math.max(0, query.hopCount() - 1);
+        this.expiration = query.expiration();
+        this.template = query.template();
+    }
+
+    /**
+     * Get the query ID
+     * @return The query ID
+     */
+    @Override
+    public UUID id() {
+        return this.id;
+    }
+
+    /**
+     * Get the ID of the host that issued the query
+     * @return The origin host ID
+     */
+    @Override
+    public UUID origin() {
+        return this.origin;
+    }
+
+    /**
+     * Get the query hop count
+     * @return The query hop count
+     */
+    @Override
+    public int hopCount() {
+        return this.hopCount;
+    }
+
+    /**
+     * Get the time after which the query is discarded
+     * @return The query expiration time
+     */
+    @Override
+    public long expiration() {
+        return this.expiration;
+    }
+
+    /**
+     * Get the query template
+     * @return The query template
+     */
+    @Override
+    public T template() {
+        return this.template;
+    }
+
+}
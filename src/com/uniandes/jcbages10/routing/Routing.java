@@ -1,10 +1,19 @@
 package com.uniandes.jcbages10.routing;
 
+import com.uniandes.jcbages10.events.Events;
+import com.uniandes.jcbages10.events.RoutingExchangeEvent;
+import com.uniandes.jcbages10.metrics.Counter;
+import com.uniandes.jcbages10.metrics.Histogram;
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.tuplespace.CoarseClock;
 import com.uniandes.jcbages10.tuplespace.ITuple;
 import com.uniandes.jcbages10.tuplespace.ITupleSpace;
-import com.uniandes.jcbages10.tuplespace.TupleSpace;
+import com.uniandes.jcbages10.tuplespace.TupleSpaceConfiguration;
+import com.uniandes.jcbages10.tuplespace.TupleSpaceFactory;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.zip.CRC32;
 
 public class Routing implements IRouting<ITuple> {
 
@@ -19,9 +28,34 @@ public class Routing implements IRouting<ITuple> {
     private final static int RECENT_CONNECTION_THRESHOLD = 30000;
 
     /**
-     * Singleton instance of routing
+     * Time a query issued by this host is kept alive in milliseconds
      */
-    private static IRouting<ITuple> instance;
+    private final static int QUERY_LEASING = 300000;
+
+    /**
+     * Time the tombstone of a consumed message is kept alive in milliseconds
+     */
+    private final static int TOMBSTONE_LEASING = 600000;
+
+    /**
+     * Maximum number of tombstones to remember, the oldest learned are forgotten first
+     */
+    private final static int MAX_NUMBER_OF_TOMBSTONES = 10000;
+
+    /**
+     * Max size of a chunk of an encoded tuple in bytes (16KB)
+     */
+    public final static int CHUNK_SIZE = 16384;
+
+    /**
+     * Time a partial transfer is kept without progress in milliseconds
+     */
+    private final static int TRANSFER_LEASING = 600000;
+
+    /**
+     * Max number of encoded tuples kept to be sent in chunks
+     */
+    private final static int MAX_ENCODED_TUPLES = 64;
 
     /**
      * Host ID
@@ -51,19 +85,145 @@ public class Routing implements IRouting<ITuple> {
     /**
      * Map from last time of connection to list of nodes connected at that time
      */
-    private TreeMap<Long, UUID> timeToHosts;
+    private TreeMap<Long, Set<UUID>> timeToHosts;
+
+    /**
+     * Map from query.id() -> query, both issued by this host & forwarded by others
+     */
+    private Map<UUID, IQuery<ITuple>> queries;
+
+    /**
+     * Map from query.id() -> (message.id() -> expiration), the known results of
+     * the queries, they expire with the query or the leasing of the tuple
+     */
+    private Map<UUID, Map<UUID, Long>> queryResults;
+
+    /**
+     * Map from message.id() -> tombstone, the IDs of the messages consumed
+     * by this host or others, they must not be stored nor forwarded again.
+     * Iterated in the order they were learned
+     */
+    private Map<UUID, Tombstone> tombstones;
+
+    /**
+     * Sequence number of the last learned tombstone
+     */
+    private long tombstonesSequence;
+
+    /**
+     * Map from host ID -> sequence number of the last tombstone given to it,
+     * so later contacts only give the ones learned since then
+     */
+    private Map<UUID, Long> tombstonesSent;
+
+    /**
+     * IDs of the stored messages other nodes may have, received from them or offered
+     * to them, only the consumption of these leaves a tombstone
+     */
+    private Set<UUID> sharedMessages;
+
+    /**
+     * Map from message.id() -> partial transfer of its encoded tuple,
+     * chunks received so far from any node
+     */
+    private Map<UUID, Transfer> transfers;
+
+    /**
+     * Map from message.id() -> encoded tuple of the message, the recently
+     * chunked ones so they aren't encoded again on every contact
+     */
+    private Map<UUID, Transfer> encodedTuples;
+
+    /**
+     * Reference to the TS this routing is scoped to
+     */
+    private final ITupleSpace tupleSpace;
+
+    /**
+     * Strategy deciding which messages are offered to other nodes & how they're copied
+     */
+    private final IRoutingStrategy<ITuple> strategy;
+
+    /**
+     * Encoder of the messages exchanged on the air, deflating the large ones
+     */
+    private final PayloadCompressor compressor;
+
+    /**
+     * On-disk log of the carried messages & tombstones, none if disabled
+     */
+    private final MessageStore store;
 
     /**
-     * Reference to the TS singleton instance
+     * Max size in bytes of an encoded tuple received from other nodes
      */
-    private static ITupleSpace tupleSpace = TupleSpace.getInstance();
+    private final int maxMessageSize;
 
     /**
-     * Constructor for initializing id, maps & dummy objects
+     * Number of chunks dropped because their length or position were not valid,
+     * or completing a transfer whose tuple could not be decoded
      */
-    private Routing() {
-        // Initialize id
-        this.id = UUID.randomUUID();
+    private final Counter rejectedChunks;
+
+    /**
+     * Number of messages IDs offered to other nodes per exchange
+     */
+    private final Histogram offeredMessages;
+
+    /**
+     * Number of messages IDs requested to other nodes per exchange
+     */
+    private final Histogram requestedMessages;
+
+    /**
+     * Number of messages sent to other nodes per exchange
+     */
+    private final Histogram sentMessages;
+
+    /**
+     * Number of new messages received from other nodes per exchange
+     */
+    private final Histogram receivedMessages;
+
+    /**
+     * Number of messages sent as replies to the queries of other nodes per exchange
+     */
+    private final Histogram repliedMessages;
+
+    /**
+     * Constructor for initializing id, maps & dummy objects with epidemic routing
+     * @param tupleSpace The TS that owns this routing
+     */
+    public Routing(ITupleSpace tupleSpace) {
+        this(tupleSpace, new TupleSpaceConfiguration());
+    }
+
+    /**
+     * Constructor for initializing id, maps & dummy objects with the given strategy
+     * @param tupleSpace The TS that owns this routing
+     * @param strategy The strategy deciding how messages are forwarded
+     */
+    public Routing(ITupleSpace tupleSpace, IRoutingStrategy<ITuple> strategy) {
+        this(tupleSpace, new TupleSpaceConfiguration().withRoutingStrategy(() -> strategy));
+    }
+
+    /**
+     * Constructor for initializing id, maps & dummy objects with the strategy,
+     * compression & store settings of the given configuration. With a store the
+     * id & tombstones are the stored ones, messages are back once restore() is called
+     * @param tupleSpace The TS that owns this routing
+     * @param configuration The configuration of the TS
+     */
+    public Routing(ITupleSpace tupleSpace, TupleSpaceConfiguration configuration) {
+        // Initialize owner TS & strategy
+        this.tupleSpace = tupleSpace;
+        this.strategy = configuration.routingStrategy().get();
+
+        // Initialize store & id
+        this.store = configuration.storeDirectory() == null
+            ? null
+            : new MessageStore(configuration.storeDirectory(), configuration.isStoreSync(), tupleSpace.metrics());
+        this.id = this.store == null ? UUID.randomUUID() : this.store.hostId(UUID.randomUUID());
 
         // Initialize maps
         this.messages = new HashMap<>();
@@ -72,19 +232,61 @@ public class Routing implements IRouting<ITuple> {
         this.recentlyConnectedHosts = new HashMap<>();
         this.timeToHosts = new TreeMap<>();
 
+        this.queries = new HashMap<>();
+        this.queryResults = new HashMap<>();
+        this.tombstones = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Tombstone> eldest) {
+                return size() > MAX_NUMBER_OF_TOMBSTONES;
+            }
+        };
+        this.tombstonesSequence = 0;
+        this.tombstonesSent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > MAX_NUMBER_OF_HOSTS;
+            }
+        };
+        if (this.store != null) {
+            this.store.tombstones(CoarseClock.millis()).forEach(this::addTombstone);
+        }
+        this.sharedMessages = new HashSet<>();
+        this.transfers = new HashMap<>();
+        this.encodedTuples = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Transfer> eldest) {
+                return size() > MAX_ENCODED_TUPLES;
+            }
+        };
+
         // Initialize dummy block object
         this.editBlock = new Object();
+
+        // Initialize metrics, shared with the owner TS
+        MetricsRegistry metrics = tupleSpace.metrics();
+        metrics.gauge("routing.messages", () -> this.messages.size());
+        metrics.gauge("routing.hosts", () -> this.recentlyConnectedHosts.size());
+        metrics.gauge("routing.queries", () -> this.queries.size());
+        metrics.gauge("routing.tombstones", () -> this.tombstones.size());
+        metrics.gauge("routing.transfers", () -> this.transfers.size());
+        this.offeredMessages = metrics.histogram("routing.offered");
+        this.requestedMessages = metrics.histogram("routing.requested");
+        this.sentMessages = metrics.histogram("routing.sent");
+        this.receivedMessages = metrics.histogram("routing.received");
+        this.repliedMessages = metrics.histogram("routing.replied");
+        this.maxMessageSize = configuration.maxMessageSize();
+        this.rejectedChunks = metrics.counter("routing.chunks.rejected");
+        this.compressor = new PayloadCompressor(
+            configuration.isCompression(), configuration.compressionThreshold(),
+            configuration.maxMessageSize(), metrics);
     }
 
     /**
-     * Get the singleton instance of Routing
-     * @return The singleton instance of routing
+     * Get the routing instance of the default TS
+     * @return The routing of the default TS
      */
-    public static synchronized IRouting<ITuple> getInstance() {
-        if (instance == null) {
-            instance = new Routing();
-        }
-        return instance;
+    public static IRouting<ITuple> getInstance() {
+        return TupleSpaceFactory.getDefault().routing();
     }
 
     /**
@@ -96,6 +298,48 @@ public class Routing implements IRouting<ITuple> {
         return this.id;
     }
 
+    /**
+     * Put the messages of the store back in the maps & the owner TS, with their
+     * IDs, hop counts & copies, so neighbours don't send them again. Restored messages
+     * are taken as shared with other nodes. Messages whose
+     * tuple expired meanwhile are dropped. Called once by the TS, no-op without store
+     */
+    @Override
+    public void restore() {
+        if (this.store == null) {
+            return;
+        }
+        List<ITuple> tuples = new ArrayList<>();
+        synchronized (this.editBlock) {
+            long currentTime = CoarseClock.millis();
+            for (IMessage<ITuple> message : this.store.messages()) {
+                if (message.element().leasing() < currentTime) {
+                    this.store.delete(message.id(), 0);
+                    continue;
+                }
+                this.messages.put(message.id(), message);
+                this.elementToMessage.put(message.element(), message);
+                // Whether it was offered before the restart isn't stored
+                this.sharedMessages.add(message.id());
+                tuples.add(message.element());
+            }
+        }
+        // Added out of the edit lock, the TS takes its own lock & calls back addMany()
+        this.tupleSpace.outRouting(tuples.toArray(new ITuple[0]));
+    }
+
+    /**
+     * Close the store, if any, once the owner TS shuts down
+     */
+    @Override
+    public void close() {
+        if (this.store != null) {
+            synchronized (this.editBlock) {
+                this.store.close();
+            }
+        }
+    }
+
     /**
      * Add a new message to the maps with the given element
      * @param element The element to add
@@ -103,9 +347,28 @@ public class Routing implements IRouting<ITuple> {
     @Override
     public void add(ITuple element) {
         synchronized (this.editBlock) {
-            IMessage<ITuple> message = new Message<>(element);
+            IMessage<ITuple> message = this.strategy.create(element);
             this.messages.put(message.id(), message);
             this.elementToMessage.put(message.element(), message);
+            persist(Collections.singletonList(message));
+        }
+    }
+
+    /**
+     * Add a new message to the maps for each of the given elements at once
+     * @param elements The elements to add
+     */
+    @Override
+    public void addMany(List<ITuple> elements) {
+        synchronized (this.editBlock) {
+            List<IMessage<ITuple>> added = new ArrayList<>(elements.size());
+            for (ITuple element : elements) {
+                IMessage<ITuple> message = this.strategy.create(element);
+                this.messages.put(message.id(), message);
+                this.elementToMessage.put(message.element(), message);
+                added.add(message);
+            }
+            persist(added);
         }
     }
 
@@ -120,79 +383,781 @@ public class Routing implements IRouting<ITuple> {
                 IMessage<ITuple> message = this.elementToMessage.get(element);
                 this.messages.remove(message.id());
                 this.elementToMessage.remove(message.element());
+                this.sharedMessages.remove(message.id());
+                unpersist(message.id(), 0);
+            }
+        }
+    }
+
+    /**
+     * Remove the message that contains the given element because it was
+     * consumed, leaving a tombstone so other nodes purge their copies.
+     * Messages never received from nor offered to other nodes have no
+     * copies elsewhere, so they are just forgotten
+     * @param element The consumed element
+     */
+    @Override
+    public void consume(ITuple element) {
+        synchronized (this.editBlock) {
+            IMessage<ITuple> message = this.elementToMessage.remove(element);
+            if (message != null) {
+                this.messages.remove(message.id());
+                if (this.sharedMessages.remove(message.id())) {
+                    long expiration = Math.min(CoarseClock.millis() + TOMBSTONE_LEASING, element.leasing());
+                    unpersist(message.id(), addTombstone(message.id(), expiration));
+                } else {
+                    unpersist(message.id(), 0);
+                }
             }
         }
     }
 
     /**
-     * Return a list of the messages IDs stored and able to be exchanged,
-     * that is, messages with hop count greater than 0
+     * Determines if a message still contains the given element, elements handed to
+     * outRouting() whose message was consumed by a tombstone in the meantime aren't
+     * carried anymore, their purge already happened so they mustn't be inserted
+     * @param element The element to check
+     * @return True if the element is carried by a message, otherwise false
+     */
+    @Override
+    public boolean carries(ITuple element) {
+        synchronized (this.editBlock) {
+            return this.elementToMessage.containsKey(element);
+        }
+    }
+
+    /**
+     * Return every tombstone of the consumed messages known by this host,
+     * to be given to receiveTombstones() of an unknown node, see tombstones(hostId)
+     * @return Map from message.id() -> expiration of the tombstone
+     */
+    @Override
+    public Map<UUID, Long> tombstones() {
+        return tombstones(null);
+    }
+
+    /**
+     * Return the tombstones of the consumed messages learned by this host since
+     * the last ones given to the given host, every one on the first contact,
+     * to be given to receiveTombstones() of that node
+     * @param hostId The ID of the other host, null if unknown
+     * @return Map from message.id() -> expiration of the tombstone
+     */
+    @Override
+    public Map<UUID, Long> tombstones(UUID hostId) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        Map<UUID, Long> result = new HashMap<>();
+        synchronized (this.editBlock) {
+            removeExpiredTombstones(CoarseClock.millis());
+            long lastSent = hostId == null ? 0 : this.tombstonesSent.getOrDefault(hostId, 0L);
+            for (Map.Entry<UUID, Tombstone> tombstone : this.tombstones.entrySet()) {
+                if (tombstone.getValue().sequence > lastSent) {
+                    result.put(tombstone.getKey(), tombstone.getValue().expiration);
+                }
+            }
+            if (hostId != null) {
+                this.tombstonesSent.put(hostId, this.tombstonesSequence);
+            }
+        }
+        commitExchangeEvent(event, "tombstones", this.tombstones.size(), result.size(), 0);
+        return result;
+    }
+
+    /**
+     * Learn the tombstones of other node, dropping the consumed messages
+     * & purging their tuples from the TS
+     * @param tombstones Map from message.id() -> expiration of the tombstone
+     */
+    @Override
+    public void receiveTombstones(Map<UUID, Long> tombstones) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        List<ITuple> consumedTuples = new ArrayList<>();
+        synchronized (this.editBlock) {
+            long currentTime = CoarseClock.millis();
+            removeExpiredTombstones(currentTime);
+            for (Map.Entry<UUID, Long> tombstone : tombstones.entrySet()) {
+                if (tombstone.getValue() < currentTime) {
+                    continue;
+                }
+                boolean known = this.tombstones.containsKey(tombstone.getKey());
+                long expiration = addTombstone(tombstone.getKey(), tombstone.getValue());
+                IMessage<ITuple> message = this.messages.remove(tombstone.getKey());
+                if (message != null) {
+                    this.elementToMessage.remove(message.element());
+                    this.sharedMessages.remove(message.id());
+                    consumedTuples.add(message.element());
+                }
+                if (message != null || !known) {
+                    unpersist(tombstone.getKey(), expiration);
+                }
+            }
+        }
+        // Purged out of the edit lock, the TS takes its own lock & calls back remove()
+        this.tupleSpace.purgeRouting(consumedTuples.toArray(new ITuple[0]));
+        commitExchangeEvent(event, "receiveTombstones", tombstones.size(), consumedTuples.size(), 0);
+    }
+
+    /**
+     * Return a list of the messages IDs stored and able to be exchanged
+     * with an unknown host, see messagesIds(hostId)
      * @return A list of the messages IDs stored
      */
     @Override
     public List<UUID> messagesIds() {
-        List<UUID> result = new ArrayList<>();
-        for (IMessage<ITuple> message : this.messages.values()) {
-            if (message.hopCount() > 0) {
-                result.add(message.id());
+        return messagesIds(null);
+    }
+
+    /**
+     * Return a list of the messages IDs stored and able to be exchanged with
+     * the given host, as decided by the routing strategy. Messages known to match
+     * the queries of other nodes come first so they are forwarded with priority
+     * @param hostId The ID of the other host, null if unknown
+     * @return A list of the messages IDs stored
+     */
+    @Override
+    public List<UUID> messagesIds(UUID hostId) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        Set<UUID> result = new LinkedHashSet<>();
+        synchronized (this.editBlock) {
+            Map<UUID, Set<UUID>> destinations = messagesDestinations();
+            for (Map<UUID, Long> results : this.queryResults.values()) {
+                for (UUID id : results.keySet()) {
+                    IMessage<ITuple> message = this.messages.get(id);
+                    if (message != null && shouldOffer(message, hostId, destinations)) {
+                        result.add(id);
+                    }
+                }
+            }
+            for (IMessage<ITuple> message : this.messages.values()) {
+                if (shouldOffer(message, hostId, destinations)) {
+                    result.add(message.id());
+                }
             }
+            this.sharedMessages.addAll(result);
         }
-        return result;
+        this.offeredMessages.record(result.size());
+        commitExchangeEvent(event, "messagesIds", this.messages.size(), result.size(), 0);
+        return new ArrayList<>(result);
     }
 
     /**
      * Returns a list with the messages containing any of the given IDs
+     * requested by an unknown host, see sendMessages(hostId, messagesIds)
      * @param messagesIds The requested messages IDs
      * @return The list with the requested messages
      */
     @Override
     public List<IMessage<ITuple>> sendMessages(List<UUID> messagesIds) {
+        return sendMessages(null, messagesIds);
+    }
+
+    /**
+     * Returns a list with the messages containing any of the given IDs requested
+     * by the given host, the strategy decides what is handed & what is kept,
+     * e.g. spray and wait splits the copies of the message between both hosts
+     * @param hostId The ID of the other host, null if unknown
+     * @param messagesIds The requested messages IDs
+     * @return The list with the requested messages
+     */
+    @Override
+    public List<IMessage<ITuple>> sendMessages(UUID hostId, List<UUID> messagesIds) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
         List<IMessage<ITuple>> result = new ArrayList<>();
         for (UUID id : messagesIds) {
             synchronized (this.editBlock) {
-                if (this.messages.containsKey(id)) {
-                    result.add(this.messages.get(id));
+                IMessage<ITuple> message = this.messages.get(id);
+                if (message != null) {
+                    result.add(this.strategy.forward(message, hostId));
+                    keep(message, this.strategy.keep(message, hostId));
                 }
             }
         }
+        this.sentMessages.record(result.size());
+        if (event.isEnabled()) {
+            commitExchangeEvent(event, "sendMessages", messagesIds.size(), result.size(), Events.estimateBytes(result));
+        }
         return result;
     }
 
     /**
-     * Returns a list with the messages IDs I don't have but are in the given list
+     * Returns a list with the messages IDs I don't have but are in the given list,
+     * leaving out the messages already consumed
      * @param messagesIds The messages IDs of other node
      * @return The messages IDs I need from that node
      */
     @Override
     public List<UUID> requestMessages(List<UUID> messagesIds) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
         List<UUID> result = new ArrayList<>();
-        for (UUID id : messagesIds) {
-            if (!this.messages.containsKey(id)) {
-                result.add(id);
+        synchronized (this.editBlock) {
+            for (UUID id : messagesIds) {
+                if (!this.messages.containsKey(id) && !this.tombstones.containsKey(id)) {
+                    result.add(id);
+                }
             }
         }
+        this.requestedMessages.record(result.size());
+        commitExchangeEvent(event, "requestMessages", messagesIds.size(), result.size(), 0);
         return result;
     }
 
     /**
-     * Receive a list of messages adding them to the TS & the maps
+     * Receive a list of messages adding them to the TS & the maps,
+     * messages already consumed are ignored
      * @param messages The messages to add
      */
     @Override
     public void receiveMessages(List<IMessage<ITuple>> messages) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        List<IMessage<ITuple>> received = new ArrayList<>(messages.size());
+        List<ITuple> tuples = new ArrayList<>(messages.size());
         synchronized (this.editBlock) {
-            ITuple[] tuples = new ITuple[messages.size()];
-            for (int i = 0; i < messages.size(); ++i) {
-                IMessage<ITuple> receivedMessage = messages.get(i);
-                if (!this.messages.containsKey(receivedMessage.id())) {
-                    IMessage<ITuple> message = new Message<>(receivedMessage);
+            for (IMessage<ITuple> receivedMessage : messages) {
+                if (!this.messages.containsKey(receivedMessage.id())
+                        && !this.tombstones.containsKey(receivedMessage.id())) {
+                    IMessage<ITuple> message = this.strategy.receive(receivedMessage);
                     this.messages.put(message.id(), message);
                     this.elementToMessage.put(message.element(), message);
-                    tuples[i] = message.element();
+                    this.sharedMessages.add(message.id());
+                    tuples.add(message.element());
+                    received.add(message);
+                    cacheQueryResult(message);
+                }
+            }
+            persist(received);
+            this.receivedMessages.record(tuples.size());
+        }
+        // Added out of the edit lock, the TS takes its own lock & calls back consume() or remove()
+        this.tupleSpace.outRouting(tuples.toArray(new ITuple[0]));
+
+        if (event.isEnabled()) {
+            commitExchangeEvent(event, "receiveMessages", messages.size(), received.size(), Events.estimateBytes(messages));
+        }
+    }
+
+    /**
+     * Return what this host can decode, given to the other node
+     * before it calls sendEncodedMessages()
+     * @return The compression offer of this host
+     */
+    @Override
+    public CompressionOffer compressionOffer() {
+        return this.compressor.offer();
+    }
+
+    /**
+     * Same as sendMessages(hostId, messagesIds) but encoded for the air, messages at least
+     * as large as the compression threshold are deflated if the other node accepts it
+     * @param hostId The ID of the other host, null if unknown
+     * @param messagesIds The requested messages IDs
+     * @param offer The compression offer of the other node
+     * @return The payload to be given to receiveEncodedMessages() of the other node
+     */
+    @Override
+    public byte[] sendEncodedMessages(UUID hostId, List<UUID> messagesIds, CompressionOffer offer) {
+        return this.compressor.encode(sendMessages(hostId, messagesIds), offer);
+    }
+
+    /**
+     * Same as receiveMessages() for a payload encoded by sendEncodedMessages()
+     * @param payload The payload of the other node
+     */
+    @Override
+    public void receiveEncodedMessages(byte[] payload) {
+        receiveMessages(this.compressor.decode(payload));
+    }
+
+    /**
+     * Return the position from which the transfer of each of the given messages
+     * has to resume, 0 for messages not started, leaving out the messages
+     * already stored or consumed. Chunked exchanges go requestMessages() ->
+     * transferOffsets() -> sendChunks() on the other node -> receiveChunks()
+     * @param messagesIds The requested messages IDs
+     * @return Map from message.id() -> bytes already received
+     */
+    @Override
+    public Map<UUID, Integer> transferOffsets(List<UUID> messagesIds) {
+        Map<UUID, Integer> result = new LinkedHashMap<>();
+        synchronized (this.editBlock) {
+            for (UUID id : messagesIds) {
+                if (!this.messages.containsKey(id) && !this.tombstones.containsKey(id)) {
+                    Transfer transfer = this.transfers.get(id);
+                    result.put(id, transfer == null ? 0 : transfer.received);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the chunks of the encoded tuples of the given messages from the given
+     * positions on, up to the given number of bytes so a contact sends what it can
+     * afford. Chunks share the encoded tuple without copying it. The strategy keeps
+     * its copy of a message once its last chunk is sent
+     * @param hostId The ID of the other host, null if unknown
+     * @param offsets Map from message.id() -> position to resume from
+     * @param maxBytes The max number of bytes of the chunks
+     * @return The chunks to be given to receiveChunks() of the other node
+     */
+    @Override
+    public List<Chunk> sendChunks(UUID hostId, Map<UUID, Integer> offsets, int maxBytes) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        List<Chunk> result = new ArrayList<>();
+        int budget = maxBytes;
+        synchronized (this.editBlock) {
+            for (Map.Entry<UUID, Integer> entry : offsets.entrySet()) {
+                IMessage<ITuple> message = this.messages.get(entry.getKey());
+                if (budget <= 0) {
+                    break;
+                } else if (message == null) {
+                    continue;
+                }
+
+                Transfer encoded = encodedTuple(message);
+                int length = encoded.bytes.length;
+                int offset = entry.getValue() < 0 || entry.getValue() > length ? 0 : entry.getValue();
+                IMessage<ITuple> forwarded = this.strategy.forward(message, hostId);
+                while (offset < length && budget > 0) {
+                    int size = Math.min(Math.min(CHUNK_SIZE, length - offset), budget);
+                    ByteBuffer data = ByteBuffer.wrap(encoded.bytes, offset, size).slice();
+                    result.add(new Chunk(message.id(), forwarded.hopCount(), forwarded.copies(),
+                        offset, length, encoded.checksum, data));
+                    offset += size;
+                    budget -= size;
+                }
+                if (offset == length) {
+                    keep(message, this.strategy.keep(message, hostId));
+                }
+            }
+        }
+        commitExchangeEvent(event, "sendChunks", offsets.size(), result.size(), maxBytes - Math.max(budget, 0));
+        return result;
+    }
+
+    /**
+     * Receive chunks of encoded tuples, keeping the progress of partial transfers
+     * so they resume on later contacts even with other nodes. Completed & valid
+     * transfers are decoded & received as messages
+     * @param chunks The chunks of the other node
+     */
+    @Override
+    public void receiveChunks(List<Chunk> chunks) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        List<IMessage<ITuple>> completed = new ArrayList<>();
+        long bytes = 0;
+        synchronized (this.editBlock) {
+            long currentTime = CoarseClock.millis();
+            removeStaleTransfers(currentTime);
+            for (Chunk chunk : chunks) {
+                UUID id = chunk.id();
+                if (this.messages.containsKey(id) || this.tombstones.containsKey(id)) {
+                    this.transfers.remove(id);
+                    continue;
+                }
+
+                // Lengths & positions come from the other node, the chunk must fit its transfer
+                ByteBuffer data = chunk.data();
+                if (chunk.length() < 0 || chunk.length() > this.maxMessageSize || chunk.offset() < 0
+                        || (long) chunk.offset() + data.remaining() > chunk.length()) {
+                    this.rejectedChunks.increment();
+                    continue;
+                }
+
+                Transfer transfer = this.transfers.get(id);
+                if (transfer == null || transfer.checksum != chunk.checksum() || transfer.bytes.length != chunk.length()) {
+                    if (chunk.offset() != 0) {
+                        continue;
+                    }
+                    transfer = new Transfer(new byte[chunk.length()], chunk.checksum());
+                    this.transfers.put(id, transfer);
+                }
+
+                // Only the bytes right after the received ones make progress
+                int skipped = transfer.received - chunk.offset();
+                if (skipped < 0 || skipped >= data.remaining()) {
+                    continue;
+                }
+                data.position(data.position() + skipped);
+                int size = Math.min(data.remaining(), transfer.bytes.length - transfer.received);
+                data.get(transfer.bytes, transfer.received, size);
+                transfer.received += size;
+                transfer.lastProgress = currentTime;
+                bytes += size;
+
+                if (transfer.received == transfer.bytes.length) {
+                    this.transfers.remove(id);
+                    if (checksum(transfer.bytes) == transfer.checksum) {
+                        try {
+                            ITuple tuple = MessageCodec.decodeTuple(transfer.bytes);
+                            completed.add(new Message<>(id, tuple, chunk.hopCount(), chunk.copies()));
+                        } catch (IllegalArgumentException e) {
+                            this.rejectedChunks.increment();
+                        }
+                    }
+                }
+            }
+        }
+        receiveMessages(completed);
+        commitExchangeEvent(event, "receiveChunks", chunks.size(), completed.size(), bytes);
+    }
+
+    /**
+     * Replace the given sent message by the copy the strategy keeps,
+     * callers must hold the edit lock
+     * @param message The sent message
+     * @param kept The message kept by this host
+     */
+    private void keep(IMessage<ITuple> message, IMessage<ITuple> kept) {
+        this.sharedMessages.add(kept.id());
+        this.messages.put(kept.id(), kept);
+        this.elementToMessage.put(kept.element(), kept);
+        if (kept != message) {
+            persist(Collections.singletonList(kept));
+        }
+    }
+
+    /**
+     * Append the given new or updated messages to the store if any,
+     * callers must hold the edit lock so the store follows the maps
+     * @param messages The messages to store
+     */
+    private void persist(List<IMessage<ITuple>> messages) {
+        if (this.store != null && !messages.isEmpty()) {
+            this.store.put(messages);
+        }
+    }
+
+    /**
+     * Forget the given message in the store if any, callers must hold the edit lock
+     * @param id The ID of the removed message
+     * @param tombstone The expiration of its tombstone or 0 if it wasn't consumed
+     */
+    private void unpersist(UUID id, long tombstone) {
+        if (this.store != null) {
+            this.store.delete(id, tombstone);
+        }
+    }
+
+    /**
+     * Return the encoded tuple of the given message, encoding it only if
+     * it wasn't recently, callers must hold the edit lock
+     * @param message The message to encode
+     * @return The encoded tuple & its checksum
+     */
+    private Transfer encodedTuple(IMessage<ITuple> message) {
+        Transfer encoded = this.encodedTuples.get(message.id());
+        if (encoded == null) {
+            byte[] bytes = MessageCodec.encodeTuple(message.element());
+            encoded = new Transfer(bytes, checksum(bytes));
+            encoded.received = bytes.length;
+            this.encodedTuples.put(message.id(), encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * Forget the partial transfers without progress for too long,
+     * callers must hold the edit lock
+     * @param currentTime The current time
+     */
+    private void removeStaleTransfers(long currentTime) {
+        this.transfers.values().removeIf(transfer -> currentTime - transfer.lastProgress > TRANSFER_LEASING);
+    }
+
+    /**
+     * Return the CRC32 of the given bytes
+     * @param bytes The bytes to check
+     * @return The checksum of the bytes
+     */
+    private static long checksum(byte[] bytes) {
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        return checksum.getValue();
+    }
+
+    /**
+     * Issue a query for the given template, it's offered to other nodes
+     * through queries() until cancelled or expired
+     * @param template The template to match
+     * @return The ID of the query
+     */
+    @Override
+    public UUID query(ITuple template) {
+        synchronized (this.editBlock) {
+            IQuery<ITuple> query = new Query<>(template, this.id, CoarseClock.millis() + QUERY_LEASING);
+            this.queries.put(query.id(), query);
+            return query.id();
+        }
+    }
+
+    /**
+     * Cancel a query issued by this host, e.g. because it was resolved
+     * @param queryId The ID of the query to cancel
+     */
+    @Override
+    public void cancelQuery(UUID queryId) {
+        synchronized (this.editBlock) {
+            this.queries.remove(queryId);
+            this.queryResults.remove(queryId);
+        }
+    }
+
+    /**
+     * Return the queries to offer to other node, both issued by this host
+     * & forwarded from others, as long as they have hop count greater than 0.
+     * An exchange starts with tombstones(hostId) -> receiveTombstones() on the other node,
+     * then queries() -> answerQueries() on the other node, whose replies are given
+     * to receiveMessages(), then goes on with messagesIds()
+     * @return The queries to offer
+     */
+    @Override
+    public List<IQuery<ITuple>> queries() {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        List<IQuery<ITuple>> result = new ArrayList<>();
+        synchronized (this.editBlock) {
+            removeExpiredQueries(CoarseClock.millis());
+            for (IQuery<ITuple> query : this.queries.values()) {
+                if (query.hopCount() > 0) {
+                    result.add(query);
                 }
             }
-            tupleSpace.outRouting(tuples);
         }
+        commitExchangeEvent(event, "queries", this.queries.size(), result.size(), 0);
+        return result;
+    }
+
+    /**
+     * Answer the queries of other node with the messages matching them,
+     * either known results or messages stored by this host, and keep the
+     * queries to forward them to other nodes while their hop count allows it
+     * @param queries The queries of other node
+     * @return The messages matching the queries, to be given to receiveMessages() of the other node
+     */
+    @Override
+    public List<IMessage<ITuple>> answerQueries(List<IQuery<ITuple>> queries) {
+        RoutingExchangeEvent event = new RoutingExchangeEvent();
+        event.begin();
+
+        List<IMessage<ITuple>> result = new ArrayList<>();
+        synchronized (this.editBlock) {
+            long currentTime = CoarseClock.millis();
+            removeExpiredQueries(currentTime);
+
+            Set<UUID> answeredIds = new LinkedHashSet<>();
+            for (IQuery<ITuple> query : queries) {
+                if (query.expiration() < currentTime || query.origin().equals(this.id)) {
+                    continue;
+                }
+                answeredIds.addAll(findQueryResults(query, currentTime));
+                if (!this.queries.containsKey(query.id())) {
+                    // Kept even without hops left, its origin is a destination for the strategy
+                    this.queries.put(query.id(), new Query<>(query));
+                }
+            }
+            for (UUID id : answeredIds) {
+                IMessage<ITuple> message = this.messages.get(id);
+                result.add(this.strategy.forward(message, null));
+                keep(message, this.strategy.keep(message, null));
+            }
+        }
+
+        this.repliedMessages.record(result.size());
+        if (event.isEnabled()) {
+            commitExchangeEvent(event, "answerQueries", queries.size(), result.size(), Events.estimateBytes(result));
+        }
+        return result;
+    }
+
+    /**
+     * Return the IDs of the stored messages matching the given query, using the
+     * known results of the query if any or else scanning the stored messages,
+     * callers must hold the edit lock
+     * @param query The query to answer
+     * @param currentTime The current time
+     * @return The IDs of the matching messages
+     */
+    private Set<UUID> findQueryResults(IQuery<ITuple> query, long currentTime) {
+        Map<UUID, Long> results = this.queryResults.getOrDefault(query.id(), Collections.emptyMap());
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (Map.Entry<UUID, Long> result : results.entrySet()) {
+            if (result.getValue() >= currentTime && this.messages.containsKey(result.getKey())) {
+                ids.add(result.getKey());
+            }
+        }
+        if (!ids.isEmpty()) {
+            return ids;
+        }
+
+        Map<UUID, Long> scanResults = new HashMap<>();
+        for (IMessage<ITuple> message : this.messages.values()) {
+            ITuple tuple = message.element();
+            if (tuple.leasing() >= currentTime && tuple.match(query.template()).isPresent()) {
+                ids.add(message.id());
+                scanResults.put(message.id(), Math.min(query.expiration(), tuple.leasing()));
+            }
+        }
+        if (!scanResults.isEmpty()) {
+            this.queryResults.computeIfAbsent(query.id(), id -> new HashMap<>()).putAll(scanResults);
+        }
+        return ids;
+    }
+
+    /**
+     * Remember the given received message as a result of the forwarded queries it matches,
+     * so it's given with priority to the next nodes, callers must hold the edit lock
+     * @param message The received message
+     */
+    private void cacheQueryResult(IMessage<ITuple> message) {
+        ITuple tuple = message.element();
+        for (IQuery<ITuple> query : this.queries.values()) {
+            if (!query.origin().equals(this.id) && tuple.match(query.template()).isPresent()) {
+                long expiration = Math.min(query.expiration(), tuple.leasing());
+                this.queryResults
+                    .computeIfAbsent(query.id(), id -> new HashMap<>())
+                    .put(message.id(), expiration);
+            }
+        }
+    }
+
+    /**
+     * Forget the expired queries & their results, callers must hold the edit lock
+     * @param currentTime The current time
+     */
+    private void removeExpiredQueries(long currentTime) {
+        Iterator<IQuery<ITuple>> iterator = this.queries.values().iterator();
+        while (iterator.hasNext()) {
+            IQuery<ITuple> query = iterator.next();
+            if (query.expiration() < currentTime) {
+                iterator.remove();
+                this.queryResults.remove(query.id());
+            }
+        }
+        for (Map<UUID, Long> results : this.queryResults.values()) {
+            results.values().removeIf(expiration -> expiration < currentTime);
+        }
+    }
+
+    /**
+     * Forget the expired tombstones, callers must hold the edit lock
+     * @param currentTime The current time
+     */
+    private void removeExpiredTombstones(long currentTime) {
+        this.tombstones.values().removeIf(tombstone -> tombstone.expiration < currentTime);
+    }
+
+    /**
+     * Learn the tombstone of the given message, keeping the latest expiration.
+     * Tombstones learned or extended are given again to the hosts that already
+     * had the older ones, callers must hold the edit lock
+     * @param id The ID of the consumed message
+     * @param expiration The expiration of the tombstone
+     * @return The expiration of the known tombstone
+     */
+    private long addTombstone(UUID id, long expiration) {
+        Tombstone previous = this.tombstones.get(id);
+        if (previous != null && previous.expiration >= expiration) {
+            return previous.expiration;
+        }
+        this.tombstones.remove(id);
+        this.tombstones.put(id, new Tombstone(expiration, ++this.tombstonesSequence));
+        return expiration;
+    }
+
+    /**
+     * Map the stored messages known to match queries of other nodes to the origins
+     * of those queries, the hosts interested in them, callers must hold the edit lock
+     * @return Map from message.id() -> IDs of the hosts interested in the message
+     */
+    private Map<UUID, Set<UUID>> messagesDestinations() {
+        Map<UUID, Set<UUID>> destinations = new HashMap<>();
+        for (Map.Entry<UUID, Map<UUID, Long>> results : this.queryResults.entrySet()) {
+            IQuery<ITuple> query = this.queries.get(results.getKey());
+            if (query == null) {
+                continue;
+            }
+            for (UUID id : results.getValue().keySet()) {
+                destinations.computeIfAbsent(id, k -> new HashSet<>()).add(query.origin());
+            }
+        }
+        return destinations;
+    }
+
+    /**
+     * Determines if the given message should be offered to the given host
+     * @param message The message to offer
+     * @param hostId The ID of the other host, null if unknown
+     * @param destinations Map from message.id() -> IDs of the hosts interested in the message
+     * @return True if the strategy offers the message
+     */
+    private boolean shouldOffer(IMessage<ITuple> message, UUID hostId, Map<UUID, Set<UUID>> destinations) {
+        Set<UUID> messageDestinations = destinations.getOrDefault(message.id(), Collections.emptySet());
+        return this.strategy.shouldOffer(message, hostId, messageDestinations);
+    }
+
+    /**
+     * Finish & commit the given exchange event if it's being recorded
+     * @param event The event to commit
+     * @param phase The name of the exchange phase
+     * @param input The number of IDs or messages given to the phase
+     * @param output The number of IDs or messages returned or accepted by the phase
+     * @param bytes The estimated size of the exchanged messages
+     */
+    private void commitExchangeEvent(RoutingExchangeEvent event, String phase, int input, int output, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.space = this.tupleSpace.name();
+            event.phase = phase;
+            event.input = input;
+            event.output = output;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Return the summary the strategy exchanges on encounters, e.g. delivery predictabilities
+     * @return Map from host ID -> value of the strategy
+     */
+    @Override
+    public Map<UUID, Double> summary() {
+        return this.strategy.summary();
+    }
+
+    /**
+     * Tell the strategy this host met the given host, to be called with the
+     * summary() of the other node before exchanging messagesIds()
+     * @param hostId The ID of the other host
+     * @param summary The summary of the other host
+     */
+    @Override
+    public void encounter(UUID hostId, Map<UUID, Double> summary) {
+        this.strategy.encounter(hostId, summary);
+    }
+
+    /**
+     * Return the strategy deciding how messages are forwarded
+     * @return The routing strategy
+     */
+    public IRoutingStrategy<ITuple> strategy() {
+        return this.strategy;
     }
 
     /**
@@ -205,7 +1170,7 @@ public class Routing implements IRouting<ITuple> {
     @Override
     public synchronized boolean shouldCommunicate(UUID hostId) {
         boolean result;
-        long currentTime = System.currentTimeMillis();
+        long currentTime = CoarseClock.millis();
         if (!this.recentlyConnectedHosts.containsKey(hostId)) {
             cleanOldestEntryIfNecessary();
             addHostRecentConnection(hostId, currentTime);
@@ -228,8 +1193,23 @@ public class Routing implements IRouting<ITuple> {
      * @param currentTime The time of connection with the host
      */
     private void addHostRecentConnection(UUID hostId, long currentTime) {
-        this.recentlyConnectedHosts.put(hostId, currentTime);
-        this.timeToHosts.put(currentTime, hostId);
+        Long lastTime = this.recentlyConnectedHosts.put(hostId, currentTime);
+        if (lastTime != null) {
+            removeHostConnection(hostId, lastTime);
+        }
+        this.timeToHosts.computeIfAbsent(currentTime, time -> new HashSet<>()).add(hostId);
+    }
+
+    /**
+     * Remove the given host from the hosts connected at the given time
+     * @param hostId The host ID to remove
+     * @param time The time of connection with the host
+     */
+    private void removeHostConnection(UUID hostId, long time) {
+        Set<UUID> hosts = this.timeToHosts.get(time);
+        if (hosts != null && hosts.remove(hostId) && hosts.isEmpty()) {
+            this.timeToHosts.remove(time);
+        }
     }
 
     /**
@@ -239,11 +1219,48 @@ public class Routing implements IRouting<ITuple> {
     private void cleanOldestEntryIfNecessary() {
         if (this.recentlyConnectedHosts.size() == MAX_NUMBER_OF_HOSTS) {
             long oldestTime = this.timeToHosts.firstKey();
-            UUID oldestHost = this.timeToHosts.get(oldestTime);
+            UUID oldestHost = this.timeToHosts.get(oldestTime).iterator().next();
 
             this.recentlyConnectedHosts.remove(oldestHost);
-            this.timeToHosts.remove(oldestTime);
+            removeHostConnection(oldestHost, oldestTime);
+        }
+    }
+
+    /**
+     * Tombstone of a consumed message, numbered in the order it was learned
+     */
+    private static class Tombstone {
+
+        private final long expiration;
+
+        private final long sequence;
+
+        Tombstone(long expiration, long sequence) {
+            this.expiration = expiration;
+            this.sequence = sequence;
         }
+
+    }
+
+    /**
+     * Encoded tuple of a message, either partially received or ready to be chunked
+     */
+    private static class Transfer {
+
+        private final byte[] bytes;
+
+        private final long checksum;
+
+        private int received;
+
+        private long lastProgress;
+
+        Transfer(byte[] bytes, long checksum) {
+            this.bytes = bytes;
+            this.checksum = checksum;
+            this.lastProgress = CoarseClock.millis();
+        }
+
     }
 
 }
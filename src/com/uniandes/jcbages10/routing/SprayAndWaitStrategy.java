@@ -0,0 +1,123 @@
+package com.uniandes.jcbages10.routing;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class SprayAndWaitStrategy<T> implements IRoutingStrategy<T> {
+
+    /**
+     * The default number of copies of a new message
+     */
+    public final static int DEFAULT_COPIES = 8;
+
+    /**
+     * The number of copies of a new message
+     */
+    private final int initialCopies;
+
+    /**
+     * Constructor for initializing the strategy with the default number of copies
+     */
+    public SprayAndWaitStrategy() {
+        this(DEFAULT_COPIES);
+    }
+
+    /**
+     * Constructor for initializing the strategy with the given number of copies
+     * @param initialCopies The number of copies of a new message
+     */
+    public SprayAndWaitStrategy(int initialCopies) {
+        if (initialCopies <= 0) {
+            throw new IllegalArgumentException("Copies must be positive");
+        }
+        this.initialCopies = initialCopies;
+    }
+
+    /**
+     * Return the name of the strategy
+     * @return The name of the strategy
+     */
+    @Override
+    public String name() {
+        return "spray-and-wait(" + this.initialCopies + ")";
+    }
+
+    /**
+     * Create a message with the initial copy budget
+     * @param element The element of the message
+     * @return The new message
+     */
+    @Override
+    public IMessage<T> create(T element) {
+        return new Message<>(element, Message.INITIAL_HOP_COUNT, this.initialCopies);
+    }
+
+    /**
+     * Offer messages with more than one copy left (spray phase) to every host,
+     * messages with a single copy (wait phase) only to hosts interested in them
+     * @param message The message to offer
+     * @param hostId The ID of the other host, null if unknown
+     * @param destinations The hosts known to be interested in the message
+     * @return True if the message should be offered
+     */
+    @Override
+    public boolean shouldOffer(IMessage<T> message, UUID hostId, Set<UUID> destinations) {
+        return message.copies() > 1 || (hostId != null && destinations.contains(hostId));
+    }
+
+    /**
+     * Hand half of the copies to the other host (binary spray),
+     * in the wait phase the single copy is delivered as it is
+     * @param message The message to send
+     * @param hostId The ID of the other host, null if unknown
+     * @return The message with the copies handed
+     */
+    @Override
+    public IMessage<T> forward(IMessage<T> message, UUID hostId) {
+        int copies = Math.max(1, message.copies() / 2);
+        return new Message<>(message, message.hopCount(), copies);
+    }
+
+    /**
+     * Keep the other half of the copies
+     * @param message The sent message
+     * @param hostId The ID of the other host, null if unknown
+     * @return The message with the copies kept
+     */
+    @Override
+    public IMessage<T> keep(IMessage<T> message, UUID hostId) {
+        int copies = message.copies() - message.copies() / 2;
+        return new Message<>(message, message.hopCount(), copies);
+    }
+
+    /**
+     * Store a received message with the copies it was handed
+     * @param message The received message
+     * @return The message to store
+     */
+    @Override
+    public IMessage<T> receive(IMessage<T> message) {
+        return new Message<>(message, message.hopCount(), message.copies());
+    }
+
+    /**
+     * Spray and wait doesn't exchange any summary
+     * @return An empty summary
+     */
+    @Override
+    public Map<UUID, Double> summary() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Spray and wait ignores encounters
+     * @param hostId The ID of the other host
+     * @param summary The summary of the other host
+     */
+    @Override
+    public void encounter(UUID hostId, Map<UUID, Double> summary) {
+    }
+
+}
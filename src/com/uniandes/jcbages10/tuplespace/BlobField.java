@@ -0,0 +1,106 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.nio.ByteBuffer;
+
+public class BlobField implements IField<ByteBuffer> {
+
+    /**
+     * Read-only view of the bytes held by the field
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor for an actual field holding the remaining bytes of the given buffer,
+     * the bytes are shared, not copied, so the buffer must not be modified afterwards
+     * @param buffer The buffer holding the bytes
+     */
+    public BlobField(ByteBuffer buffer) {
+        this.buffer = buffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Build a blob field sharing the given bytes without copying them
+     * @param bytes The bytes of the blob
+     * @return The blob field
+     */
+    public static BlobField wrap(byte[] bytes) {
+        return new BlobField(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Blob fields are always actual, templates use a formal Field of ByteBuffer
+     * @return False
+     */
+    @Override
+    public boolean isFormal() {
+        return false;
+    }
+
+    /**
+     * Blob fields are always actual
+     * @return True
+     */
+    @Override
+    public boolean isActual() {
+        return true;
+    }
+
+    /**
+     * Return ByteBuffer as the type of the field, matching formal fields of ByteBuffer
+     * @return The field type
+     */
+    @Override
+    public Class<ByteBuffer> type() {
+        return ByteBuffer.class;
+    }
+
+    /**
+     * Return a read-only view of the bytes with its own position & limit,
+     * callers may consume it without affecting other readers
+     * @return A read-only view of the bytes
+     */
+    @Override
+    public ByteBuffer element() {
+        return this.buffer.duplicate();
+    }
+
+    /**
+     * Return the number of bytes of the blob
+     * @return The size of the blob
+     */
+    public int size() {
+        return this.buffer.remaining();
+    }
+
+    /**
+     * Check if the given object is an actual field of ByteBuffer with the same bytes
+     * @param object The object to compare
+     * @return True if they are equal, else false
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof IField)) {
+            return false;
+        }
+        IField field = (IField) object;
+        return field.isActual() && field.type() == ByteBuffer.class && this.buffer.equals(field.element());
+    }
+
+    /**
+     * Return the hash code of the bytes
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return this.buffer.hashCode();
+    }
+
+    /**
+     * Override toString for pretty printing of the blob size, not its bytes
+     */
+    @Override
+    public String toString() {
+        return "blob[" + size() + " bytes]";
+    }
+
+}
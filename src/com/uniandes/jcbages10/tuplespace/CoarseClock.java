@@ -0,0 +1,99 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public final class CoarseClock {
+
+    /**
+     * Time in milliseconds between updates of the clock, the most it lags behind the system
+     * clock, well below the width of the lease buckets so expirations are hardly delayed
+     */
+    public final static long TICK_MILLIS = 10;
+
+    /**
+     * Current time in milliseconds as of the last tick, never going backwards
+     */
+    private final static AtomicLong currentTime = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Whether or not the ticker thread is updating the clock
+     */
+    private static volatile boolean ticking = false;
+
+    /**
+     * Number of TS using the clock, the ticker thread only runs while there's some,
+     * guarded by the class lock
+     */
+    private static int users = 0;
+
+    /**
+     * Thread updating the clock every tick, null if there are no users
+     */
+    private static Thread ticker = null;
+
+    /**
+     * Non instantiable helper
+     */
+    private CoarseClock() {
+    }
+
+    /**
+     * Return the current time in milliseconds as of the last tick. Reading it is two
+     * volatile reads, so the match path & routing can check as many leasings
+     * as they need against the same clock instead of querying the system one every time.
+     * While no TS is running the system clock is queried instead
+     * @return The current time in milliseconds
+     */
+    public static long millis() {
+        return ticking ? currentTime.get() : advance();
+    }
+
+    /**
+     * Start updating the clock every tick if this is its first user,
+     * called by every TS when it's created
+     */
+    static synchronized void acquire() {
+        if (users++ == 0) {
+            advance();
+            ticker = new Thread(CoarseClock::tick, "coarse-clock");
+            ticker.setDaemon(true);
+            ticker.start();
+            ticking = true;
+        }
+    }
+
+    /**
+     * Stop updating the clock if this was its last user,
+     * called by every TS when it's shutdown
+     */
+    static synchronized void release() {
+        if (users > 0 && --users == 0) {
+            ticking = false;
+            ticker.interrupt();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Move the clock to the system time unless that would take it backwards
+     * @return The current time in milliseconds
+     */
+    private static long advance() {
+        long systemTime = System.currentTimeMillis();
+        return currentTime.accumulateAndGet(systemTime, Math::max);
+    }
+
+    /**
+     * Update the clock every tick until the thread is interrupted by release()
+     */
+    private static void tick() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+        while (!Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(tickNanos);
+            advance();
+        }
+    }
+
+}
@@ -1,21 +1,56 @@
 package com.uniandes.jcbages10.tuplespace;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class Field<T> implements IField<T> {
 
+    /**
+     * Range of the interned Integer fields, [MIN_INTERNED_INTEGER, MAX_INTERNED_INTEGER]
+     */
+    private final static int MIN_INTERNED_INTEGER = -128;
+    private final static int MAX_INTERNED_INTEGER = 1023;
+
+    /**
+     * Max length of the interned String fields
+     */
+    private final static int MAX_INTERNED_STRING_LENGTH = 32;
+
+    /**
+     * Max number of interned String fields, later strings are not interned
+     */
+    private final static int MAX_INTERNED_STRINGS = 65536;
+
+    /**
+     * Interned Integer fields, built on first use
+     */
+    private final static Field[] integers = new Field[MAX_INTERNED_INTEGER - MIN_INTERNED_INTEGER + 1];
+
+    /**
+     * Map from string -> interned String field holding it
+     */
+    private final static Map<String, Field<String>> strings = new ConcurrentHashMap<>();
+
+    /**
+     * Map from type -> interned formal field of the type
+     */
+    private final static Map<Class<?>, Field<?>> formals = new ConcurrentHashMap<>();
+
     /**
      * The class type of the field
      */
-    private Class<T> type;
+    private final Class<T> type;
 
     /**
      * The element held by the field
      */
-    private T element;
+    private final T element;
 
     /**
      * Whether or not the field is a formal
      */
-    private boolean isFormal;
+    private final boolean isFormal;
 
     /**
      * Constructor for formal fields, only specify the type
@@ -23,6 +58,7 @@ public class Field<T> implements IField<T> {
      */
     public Field(Class<T> type) {
         this.type = type;
+        this.element = null;
         this.isFormal = true;
     }
 
@@ -37,6 +73,51 @@ public class Field<T> implements IField<T> {
         this.isFormal = false;
     }
 
+    /**
+     * Return the shared formal field of the given type, fields are immutable
+     * so every template & tuple may hold the same instance
+     * @param type The type of the formal field
+     * @return The formal field
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Field<T> of(Class<T> type) {
+        return (Field<T>) formals.computeIfAbsent(type, Field::new);
+    }
+
+    /**
+     * Return an actual field of the given type & element, small Integer & short
+     * String elements get a shared field, the same instance for equal elements,
+     * so frequent values are held once by every tuple & message holding them.
+     * Other elements get a new field, same as the constructor
+     * @param type The type of the actual field
+     * @param element The element held by the actual field
+     * @return The actual field
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Field<T> of(Class<T> type, T element) {
+        if (type == Integer.class && element != null) {
+            int value = (Integer) element;
+            if (value >= MIN_INTERNED_INTEGER && value <= MAX_INTERNED_INTEGER) {
+                int i = value - MIN_INTERNED_INTEGER;
+                Field<T> field = integers[i];
+                if (field == null) {
+                    field = new Field<>(type, element);
+                    integers[i] = field;
+                }
+                return field;
+            }
+        } else if (type == String.class && element != null
+                && ((String) element).length() <= MAX_INTERNED_STRING_LENGTH) {
+            Field<String> field = strings.get(element);
+            if (field != null) {
+                return (Field<T>) field;
+            } else if (strings.size() < MAX_INTERNED_STRINGS) {
+                return (Field<T>) strings.computeIfAbsent((String) element, e -> new Field<>(String.class, e));
+            }
+        }
+        return new Field<>(type, element);
+    }
+
     /**
      * Return true if the field is a formal, else false
      * @return True if the field is a formal, else false
@@ -118,6 +199,19 @@ public class Field<T> implements IField<T> {
         return element1.equals(element2);
     }
 
+    /**
+     * Hash code consistent with equals: formal fields are all equal to each other
+     * so they share the same hash code, actual ones combine their type & element
+     * @return The hash code of the field
+     */
+    @Override
+    public int hashCode() {
+        if (this.isFormal()) {
+            return 0;
+        }
+        return 31 * this.type().hashCode() + Objects.hashCode(this.element());
+    }
+
     /**
      * Override toString for pretty printing of element
      */
@@ -0,0 +1,7 @@
+package com.uniandes.jcbages10.tuplespace;
+
+public interface IConstraintField<T> extends IField<T> {
+
+    boolean accepts(T element);
+
+}
@@ -12,4 +12,6 @@ public interface ITuple {
 
     long leasing();
 
+    Signature signature();
+
 }
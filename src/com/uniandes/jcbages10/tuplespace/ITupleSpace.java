@@ -1,17 +1,42 @@
 package com.uniandes.jcbages10.tuplespace;
 
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.routing.IRouting;
+
+import java.util.List;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
 
 public interface ITupleSpace {
 
+    String name();
+
+    IRouting<ITuple> routing();
+
+    MetricsRegistry metrics();
+
     void out(ITuple tuple);
 
     void outMany(ITuple... tuple);
 
     void outRouting(ITuple... tuples);
 
+    void purgeRouting(ITuple... tuples);
+
     Future<ITuple> in(ITuple tuple);
 
     Future<ITuple> read(ITuple tuple);
 
+    List<ITuple> readAll(ITuple tuple);
+
+    int count(ITuple tuple);
+
+    Flow.Publisher<ITuple> subscribe(ITuple tuple);
+
+    Future<List<ITuple>> atomically(Operation... operations);
+
+    boolean compareAndSwap(ITuple expected, ITuple replacement);
+
+    void shutdown();
+
 }
@@ -0,0 +1,195 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+class LeaseIndex {
+
+    /**
+     * Width in milliseconds of the leasing range of a bucket
+     */
+    private final static long BUCKET_MILLIS = 1000;
+
+    /**
+     * Map from bucket number (leasing / BUCKET_MILLIS) -> positions of the tuples leased until then
+     */
+    private final TreeMap<Long, Bucket> buckets;
+
+    /**
+     * Leasing of the tuple stored at every position
+     */
+    private final long[] leasings;
+
+    /**
+     * Slot in its bucket of every position
+     */
+    private final int[] slots;
+
+    /**
+     * Time from which the oldest bucket is fully expired, Long.MAX_VALUE if there's none
+     */
+    private volatile long expiration;
+
+    /**
+     * Constructor for initializing an empty index of a container of the given size
+     * @param capacity The size of the tuples container
+     */
+    LeaseIndex(int capacity) {
+        this.buckets = new TreeMap<>();
+        this.leasings = new long[capacity];
+        this.slots = new int[capacity];
+        this.expiration = Long.MAX_VALUE;
+    }
+
+    /**
+     * Index the leasing of the given tuple stored at the given position,
+     * callers must hold the TS edit lock
+     * @param tuple The stored tuple
+     * @param position The position of the tuple in the container
+     */
+    void add(ITuple tuple, int position) {
+        long leasing = tuple.leasing();
+        Bucket bucket = this.buckets.computeIfAbsent(bucketOf(leasing), k -> new Bucket());
+        this.leasings[position] = leasing;
+        this.slots[position] = bucket.add(position);
+        updateExpiration();
+    }
+
+    /**
+     * Forget the leasing of the tuple stored at the given position,
+     * callers must hold the TS edit lock
+     * @param position The position of the tuple in the container
+     */
+    void remove(int position) {
+        long key = bucketOf(this.leasings[position]);
+        Bucket bucket = this.buckets.get(key);
+        int movedPosition = bucket.remove(this.slots[position]);
+        if (movedPosition >= 0) {
+            this.slots[movedPosition] = this.slots[position];
+        }
+        if (bucket.size == 0) {
+            this.buckets.remove(key);
+            updateExpiration();
+        }
+    }
+
+    /**
+     * Determines if some bucket is fully expired at the given time,
+     * it can be called without holding the TS edit lock
+     * @param currentTime The current time in milliseconds
+     * @return True if expired() would return some position, otherwise false
+     */
+    boolean hasExpired(long currentTime) {
+        return this.expiration <= currentTime;
+    }
+
+    /**
+     * Return the positions of the buckets whose every tuple is expired at the given time,
+     * tuples of the bucket holding the current time are left to the leasing checks,
+     * callers must hold the TS edit lock
+     * @param currentTime The current time in milliseconds
+     * @return The positions of the expired tuples
+     */
+    List<Integer> expired(long currentTime) {
+        List<Integer> positions = new ArrayList<>();
+        for (Bucket bucket : this.buckets.headMap(bucketOf(currentTime)).values()) {
+            bucket.addTo(positions, bucket.size);
+        }
+        return positions;
+    }
+
+    /**
+     * Return the positions of the given number of tuples with the oldest leasing,
+     * whole buckets are taken in order and only the last one is sorted,
+     * callers must hold the TS edit lock
+     * @param numberOfPositions The number of positions required
+     * @return The positions of the oldest tuples, less if there aren't enough tuples
+     */
+    List<Integer> oldest(int numberOfPositions) {
+        List<Integer> positions = new ArrayList<>(numberOfPositions);
+        for (Bucket bucket : this.buckets.values()) {
+            int remainingPositions = numberOfPositions - positions.size();
+            if (remainingPositions == 0) {
+                break;
+            }
+            if (bucket.size > remainingPositions) {
+                bucket.sort(Comparator.comparingLong(position -> this.leasings[position]));
+            }
+            bucket.addTo(positions, Math.min(bucket.size, remainingPositions));
+        }
+        return positions;
+    }
+
+    /**
+     * Return the bucket holding the given leasing
+     * @param leasing The leasing in milliseconds
+     * @return The bucket number
+     */
+    private static long bucketOf(long leasing) {
+        return Math.floorDiv(leasing, BUCKET_MILLIS);
+    }
+
+    /**
+     * Recompute the time from which the oldest bucket is fully expired
+     */
+    private void updateExpiration() {
+        if (this.buckets.isEmpty()) {
+            this.expiration = Long.MAX_VALUE;
+            return;
+        }
+        long oldestBucket = this.buckets.firstKey();
+        this.expiration = oldestBucket >= Long.MAX_VALUE / BUCKET_MILLIS
+            ? Long.MAX_VALUE
+            : (oldestBucket + 1) * BUCKET_MILLIS;
+    }
+
+    /**
+     * Positions of the tuples of a bucket, removals move the last one into the freed slot
+     */
+    private final class Bucket {
+
+        private int[] positions = new int[8];
+
+        private int size;
+
+        int add(int position) {
+            if (this.size == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            }
+            this.positions[this.size] = position;
+            return this.size++;
+        }
+
+        int remove(int slot) {
+            int lastPosition = this.positions[--this.size];
+            if (slot == this.size) {
+                return -1;
+            }
+            this.positions[slot] = lastPosition;
+            return lastPosition;
+        }
+
+        void addTo(List<Integer> positions, int count) {
+            for (int i = 0; i < count; i++) {
+                positions.add(this.positions[i]);
+            }
+        }
+
+        void sort(Comparator<Integer> comparator) {
+            Integer[] sorted = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) {
+                sorted[i] = this.positions[i];
+            }
+            Arrays.sort(sorted, comparator);
+            for (int i = 0; i < this.size; i++) {
+                this.positions[i] = sorted[i];
+                LeaseIndex.this.slots[sorted[i]] = i;
+            }
+        }
+
+    }
+
+}
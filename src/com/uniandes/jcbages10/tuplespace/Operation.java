@@ -0,0 +1,104 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.function.UnaryOperator;
+
+public class Operation {
+
+    /**
+     * Kinds of steps of an atomic compound operation
+     */
+    public enum Type {
+        IN, READ, OUT, UPDATE
+    }
+
+    /**
+     * The kind of step
+     */
+    private Type type;
+
+    /**
+     * The template to match for in, read & update, or the tuple to add for out
+     */
+    private ITuple tuple;
+
+    /**
+     * The function building the replacement of the matched tuple for update
+     */
+    private UnaryOperator<ITuple> function;
+
+    /**
+     * Internal constructor, use the static factories
+     * @param type The kind of step
+     * @param tuple The template or tuple of the step
+     * @param function The replacement function for update steps
+     */
+    private Operation(Type type, ITuple tuple, UnaryOperator<ITuple> function) {
+        this.type = type;
+        this.tuple = tuple;
+        this.function = function;
+    }
+
+    /**
+     * Build a step removing a tuple matching the given one
+     * @param tuple The tuple to try to match
+     * @return The in step
+     */
+    public static Operation in(ITuple tuple) {
+        return new Operation(Type.IN, tuple, null);
+    }
+
+    /**
+     * Build a step reading a tuple matching the given one
+     * @param tuple The tuple to try to match
+     * @return The read step
+     */
+    public static Operation read(ITuple tuple) {
+        return new Operation(Type.READ, tuple, null);
+    }
+
+    /**
+     * Build a step adding the given tuple
+     * @param tuple The tuple to add
+     * @return The out step
+     */
+    public static Operation out(ITuple tuple) {
+        return new Operation(Type.OUT, tuple, null);
+    }
+
+    /**
+     * Build a step removing a tuple matching the given one and adding
+     * the tuple built by the given function from the matched result,
+     * e.g. take (counter, ?int) and put (counter, n + 1)
+     * @param tuple The tuple to try to match
+     * @param function The function building the replacement from the matched result
+     * @return The update step
+     */
+    public static Operation update(ITuple tuple, UnaryOperator<ITuple> function) {
+        return new Operation(Type.UPDATE, tuple, function);
+    }
+
+    /**
+     * Return the kind of step
+     * @return The kind of step
+     */
+    public Type type() {
+        return this.type;
+    }
+
+    /**
+     * Return the template to match, or the tuple to add for out steps
+     * @return The template or tuple of the step
+     */
+    public ITuple tuple() {
+        return this.tuple;
+    }
+
+    /**
+     * Return the replacement function of update steps
+     * @return The replacement function or null for other steps
+     */
+    public UnaryOperator<ITuple> function() {
+        return this.function;
+    }
+
+}
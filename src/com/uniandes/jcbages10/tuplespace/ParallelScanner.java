@@ -0,0 +1,168 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+class ParallelScanner {
+
+    /**
+     * Number of positions scanned by a single task, smaller ranges aren't split
+     */
+    private final static int SEGMENT_SIZE = 8192;
+
+    /**
+     * Pool running the segments of the scans
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Attempt to match the tuple at a position during a findAny() scan
+     */
+    interface Attempt<T> {
+
+        /**
+         * Try to match & claim the tuple at the given position, claims must set the given
+         * flag, atomically with whatever they do, only if it's not set yet by other segment
+         * @param position The position to try
+         * @param claimed Whether or not a segment already claimed a match
+         * @return The result of the claimed match or none
+         */
+        Optional<T> at(int position, AtomicBoolean claimed);
+
+    }
+
+    /**
+     * Constructor for initializing the pool with the given parallelism
+     * @param parallelism The number of threads scanning segments
+     */
+    ParallelScanner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Scan the positions [0, size) in parallel segments until some attempt claims a match,
+     * then every segment stops at its next position
+     * @param size The number of positions to scan
+     * @param attempt The attempt performed at every position
+     * @param scanned The counter of the scanned positions
+     * @return The result of the claimed match or none
+     */
+    <T> Optional<T> findAny(int size, Attempt<T> attempt, LongAdder scanned) {
+        AtomicBoolean claimed = new AtomicBoolean();
+        return this.pool.invoke(new FindTask<>(0, size, attempt, claimed, scanned));
+    }
+
+    /**
+     * Scan the positions [0, size) in parallel segments collecting the results of the given
+     * mapper, the results are given in position order
+     * @param size The number of positions to scan
+     * @param mapper The mapper of every position to its result or none
+     * @return The results of the positions
+     */
+    <T> List<T> collect(int size, IntFunction<Optional<T>> mapper) {
+        return this.pool.invoke(new CollectTask<>(0, size, mapper));
+    }
+
+    /**
+     * Stop the threads of the pool
+     */
+    void shutdown() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * Segment of a findAny() scan, split in halves until it's small enough
+     */
+    private static class FindTask<T> extends RecursiveTask<Optional<T>> {
+
+        private final static long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        private final Attempt<T> attempt;
+
+        private final AtomicBoolean claimed;
+
+        private final LongAdder scanned;
+
+        FindTask(int from, int to, Attempt<T> attempt, AtomicBoolean claimed, LongAdder scanned) {
+            this.from = from;
+            this.to = to;
+            this.attempt = attempt;
+            this.claimed = claimed;
+            this.scanned = scanned;
+        }
+
+        @Override
+        protected Optional<T> compute() {
+            if (this.to - this.from > SEGMENT_SIZE) {
+                int middle = (this.from + this.to) >>> 1;
+                FindTask<T> left = new FindTask<>(this.from, middle, this.attempt, this.claimed, this.scanned);
+                FindTask<T> right = new FindTask<>(middle, this.to, this.attempt, this.claimed, this.scanned);
+                left.fork();
+                Optional<T> result = right.compute();
+                Optional<T> leftResult = left.join();
+                return result.isPresent() ? result : leftResult;
+            }
+
+            int position = this.from;
+            Optional<T> result = Optional.empty();
+            for (; position < this.to && !result.isPresent() && !this.claimed.get(); position++) {
+                result = this.attempt.at(position, this.claimed);
+            }
+            this.scanned.add(position - this.from);
+            return result;
+        }
+
+    }
+
+    /**
+     * Segment of a collect() scan, split in halves until it's small enough
+     */
+    private static class CollectTask<T> extends RecursiveTask<List<T>> {
+
+        private final static long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        private final IntFunction<Optional<T>> mapper;
+
+        CollectTask(int from, int to, IntFunction<Optional<T>> mapper) {
+            this.from = from;
+            this.to = to;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (this.to - this.from > SEGMENT_SIZE) {
+                int middle = (this.from + this.to) >>> 1;
+                CollectTask<T> left = new CollectTask<>(this.from, middle, this.mapper);
+                CollectTask<T> right = new CollectTask<>(middle, this.to, this.mapper);
+                left.fork();
+                List<T> rightResults = right.compute();
+                List<T> results = left.join();
+                results.addAll(rightResults);
+                return results;
+            }
+
+            List<T> results = new ArrayList<>();
+            for (int position = this.from; position < this.to; position++) {
+                this.mapper.apply(position).ifPresent(results::add);
+            }
+            return results;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.function.Predicate;
+
+public class PredicateField<T> implements IConstraintField<T> {
+
+    /**
+     * The class type of the field
+     */
+    private Class<T> type;
+
+    /**
+     * The condition the matched elements must fulfill
+     */
+    private Predicate<? super T> predicate;
+
+    /**
+     * Constructor for a predicate template field, it works as a formal field
+     * that only matches actual fields whose element fulfills the predicate.
+     * Predicates can't be served by indexes, prefer RangeField when possible
+     * @param type The type of the field
+     * @param predicate The condition the matched elements must fulfill
+     */
+    public PredicateField(Class<T> type, Predicate<? super T> predicate) {
+        this.type = type;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Determines if the given element fulfills the predicate
+     * @param element The element to validate
+     * @return True if the element fulfills the predicate, otherwise false
+     */
+    @Override
+    public boolean accepts(T element) {
+        return element != null && this.predicate.test(element);
+    }
+
+    /**
+     * Predicate fields work as formals
+     * @return Always true
+     */
+    @Override
+    public boolean isFormal() {
+        return true;
+    }
+
+    /**
+     * Predicate fields work as formals
+     * @return Always false
+     */
+    @Override
+    public boolean isActual() {
+        return false;
+    }
+
+    /**
+     * Return the type property of the field
+     * @return The field type
+     */
+    @Override
+    public Class<T> type() {
+        return this.type;
+    }
+
+    /**
+     * Predicate fields don't hold an element
+     * @return Always null
+     */
+    @Override
+    public T element() {
+        return null;
+    }
+
+    /**
+     * Pretty print format for predicate
+     */
+    @Override
+    public String toString() {
+        return "?" + this.type.getSimpleName() + "(predicate)";
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.uniandes.jcbages10.tuplespace;
+
+public class RangeField<T extends Comparable<? super T>> implements IConstraintField<T> {
+
+    /**
+     * The class type of the field
+     */
+    private Class<T> type;
+
+    /**
+     * The lower bound of the range, none if unbounded
+     */
+    private T lower;
+
+    /**
+     * Whether or not the lower bound belongs to the range
+     */
+    private boolean lowerInclusive;
+
+    /**
+     * The upper bound of the range, none if unbounded
+     */
+    private T upper;
+
+    /**
+     * Whether or not the upper bound belongs to the range
+     */
+    private boolean upperInclusive;
+
+    /**
+     * Constructor for a range template field, it works as a formal field
+     * that only matches actual fields whose element is within the range
+     * @param type The type of the field
+     * @param lower The lower bound of the range, null if unbounded
+     * @param lowerInclusive Whether or not the lower bound belongs to the range
+     * @param upper The upper bound of the range, null if unbounded
+     * @param upperInclusive Whether or not the upper bound belongs to the range
+     */
+    public RangeField(Class<T> type, T lower, boolean lowerInclusive, T upper, boolean upperInclusive) {
+        this.type = type;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    /**
+     * Build a range matching elements greater than the given one
+     * @param type The type of the field
+     * @param lower The exclusive lower bound
+     * @return The range field
+     */
+    public static <T extends Comparable<? super T>> RangeField<T> greaterThan(Class<T> type, T lower) {
+        return new RangeField<>(type, lower, false, null, false);
+    }
+
+    /**
+     * Build a range matching elements greater than or equal to the given one
+     * @param type The type of the field
+     * @param lower The inclusive lower bound
+     * @return The range field
+     */
+    public static <T extends Comparable<? super T>> RangeField<T> atLeast(Class<T> type, T lower) {
+        return new RangeField<>(type, lower, true, null, false);
+    }
+
+    /**
+     * Build a range matching elements less than the given one
+     * @param type The type of the field
+     * @param upper The exclusive upper bound
+     * @return The range field
+     */
+    public static <T extends Comparable<? super T>> RangeField<T> lessThan(Class<T> type, T upper) {
+        return new RangeField<>(type, null, false, upper, false);
+    }
+
+    /**
+     * Build a range matching elements less than or equal to the given one
+     * @param type The type of the field
+     * @param upper The inclusive upper bound
+     * @return The range field
+     */
+    public static <T extends Comparable<? super T>> RangeField<T> atMost(Class<T> type, T upper) {
+        return new RangeField<>(type, null, false, upper, true);
+    }
+
+    /**
+     * Build a range matching elements between the given ones, both inclusive
+     * @param type The type of the field
+     * @param lower The inclusive lower bound
+     * @param upper The inclusive upper bound
+     * @return The range field
+     */
+    public static <T extends Comparable<? super T>> RangeField<T> between(Class<T> type, T lower, T upper) {
+        return new RangeField<>(type, lower, true, upper, true);
+    }
+
+    /**
+     * Determines if the given element is within the range
+     * @param element The element to validate
+     * @return True if the element is within the range, otherwise false
+     */
+    @Override
+    public boolean accepts(T element) {
+        if (element == null) {
+            return false;
+        }
+        if (this.lower != null) {
+            int comparison = element.compareTo(this.lower);
+            if (comparison < 0 || (comparison == 0 && !this.lowerInclusive)) {
+                return false;
+            }
+        }
+        if (this.upper != null) {
+            int comparison = element.compareTo(this.upper);
+            if (comparison > 0 || (comparison == 0 && !this.upperInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Range fields work as formals
+     * @return Always true
+     */
+    @Override
+    public boolean isFormal() {
+        return true;
+    }
+
+    /**
+     * Range fields work as formals
+     * @return Always false
+     */
+    @Override
+    public boolean isActual() {
+        return false;
+    }
+
+    /**
+     * Return the type property of the field
+     * @return The field type
+     */
+    @Override
+    public Class<T> type() {
+        return this.type;
+    }
+
+    /**
+     * Range fields don't hold an element
+     * @return Always null
+     */
+    @Override
+    public T element() {
+        return null;
+    }
+
+    /**
+     * Return the lower bound of the range
+     * @return The lower bound or null if unbounded
+     */
+    public T lower() {
+        return this.lower;
+    }
+
+    /**
+     * Return whether or not the lower bound belongs to the range
+     * @return True if the lower bound is inclusive
+     */
+    public boolean isLowerInclusive() {
+        return this.lowerInclusive;
+    }
+
+    /**
+     * Return the upper bound of the range
+     * @return The upper bound or null if unbounded
+     */
+    public T upper() {
+        return this.upper;
+    }
+
+    /**
+     * Return whether or not the upper bound belongs to the range
+     * @return True if the upper bound is inclusive
+     */
+    public boolean isUpperInclusive() {
+        return this.upperInclusive;
+    }
+
+    /**
+     * Pretty print format for range, e.g. ?Integer(40, +inf)
+     */
+    @Override
+    public String toString() {
+        return "?" + this.type.getSimpleName()
+            + (this.lowerInclusive ? "[" : "(")
+            + (this.lower == null ? "-inf" : this.lower.toString())
+            + ", "
+            + (this.upper == null ? "+inf" : this.upper.toString())
+            + (this.upperInclusive ? "]" : ")");
+    }
+
+}
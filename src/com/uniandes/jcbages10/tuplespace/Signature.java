@@ -0,0 +1,86 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class Signature {
+
+    /**
+     * Map from field types -> canonical signature, shared by every tuple & template of the shape
+     */
+    private final static Map<List<Class<?>>, Signature> signatures = new ConcurrentHashMap<>();
+
+    /**
+     * Types of the fields, in order
+     */
+    private final Class<?>[] types;
+
+    /**
+     * Internal constructor, signatures are only built through of()
+     * @param types The types of the fields
+     */
+    private Signature(Class<?>[] types) {
+        this.types = types;
+    }
+
+    /**
+     * Return the canonical signature of the given field types, two signatures
+     * are the same object iff their types are the same in the same order
+     * @param types The types of the fields, in order
+     * @return The signature
+     */
+    public static Signature of(Class<?>... types) {
+        List<Class<?>> key = Arrays.asList(types);
+        Signature signature = signatures.get(key);
+        if (signature == null) {
+            Class<?>[] copy = types.clone();
+            signature = signatures.computeIfAbsent(Arrays.asList(copy), k -> new Signature(copy));
+        }
+        return signature;
+    }
+
+    /**
+     * Return the canonical signature of the types of the given fields
+     * @param fields The fields, in order
+     * @return The signature
+     */
+    public static Signature of(IField... fields) {
+        Class<?>[] types = new Class<?>[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            types[i] = fields[i].type();
+        }
+        return of(types);
+    }
+
+    /**
+     * Return the number of fields of the signature
+     * @return The length of the signature
+     */
+    public int length() {
+        return this.types.length;
+    }
+
+    /**
+     * Return the type of the field at the given position
+     * @param position The position of the field
+     * @return The type of the field
+     */
+    public Class<?> type(int position) {
+        return this.types[position];
+    }
+
+    /**
+     * Pretty print format for signature, the simple names of its types
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder("<");
+        for (int i = 0; i < this.types.length; i++) {
+            string.append(i > 0 ? ", " : "").append(this.types[i].getSimpleName());
+        }
+        return string.append(">").toString();
+    }
+
+}
@@ -1,8 +1,5 @@
 package com.uniandes.jcbages10.tuplespace;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
 
 public class Tuple implements ITuple {
@@ -10,7 +7,12 @@ public class Tuple implements ITuple {
     /**
      * Fields container
      */
-    private List<IField> fields;
+    private IField[] fields;
+
+    /**
+     * Canonical signature of the fields, shared by every tuple of the same shape
+     */
+    private Signature signature;
 
     /**
      * Leasing indicating the expiration date of the message
@@ -23,7 +25,8 @@ public class Tuple implements ITuple {
      * @param fields The fields part of the tuple
      */
     public Tuple(long leasing, IField... fields) {
-        this.fields = Arrays.asList(fields);
+        this.fields = fields;
+        this.signature = Signature.of(fields);
         this.leasing = leasing;
     }
 
@@ -32,16 +35,18 @@ public class Tuple implements ITuple {
      * @param fields The fields part of the tuple
      */
     public Tuple(IField... fields) {
-        this.fields = Arrays.asList(fields);
-        this.leasing = 0;
+        this(0, fields);
     }
 
     /**
-     * Internal constructor for initializing the fields with a given list
-     * @param fields The list with the fields part of the tuple
+     * Internal constructor for initializing the fields of a matched result,
+     * of the already known signature & a leasing of 0
+     * @param signature The signature of the fields
+     * @param fields The fields part of the tuple
      */
-    private Tuple(List<IField> fields) {
+    private Tuple(Signature signature, IField[] fields) {
         this.fields = fields;
+        this.signature = signature;
         this.leasing = 0;
     }
 
@@ -52,8 +57,9 @@ public class Tuple implements ITuple {
      */
     @Override
     public Optional<ITuple> match(ITuple tuple) {
-        // abort if lengths are different
-        if (this.length() != tuple.length()) {
+        // abort if shapes are different, signatures are canonical so
+        // this covers the lengths & the types of every field
+        if (this.signature != tuple.signature()) {
             return Optional.empty();
         }
 
@@ -68,7 +74,7 @@ public class Tuple implements ITuple {
 
     /**
      * Verify if all fields in this tuple & the given one match,
-     * this method assumes both tuples have the same length
+     * this method assumes both tuples have the same signature
      * @param tuple The tuple to compare fields with this one
      * @return True if all fields can be matched, otherwise false
      */
@@ -80,8 +86,10 @@ public class Tuple implements ITuple {
 
             if (field1.isFormal() && field2.isFormal()) {
                 isMatch = false;
-            } else if (field1.isFormal() || field2.isFormal()) {
-                isMatch = field1.type().equals(field2.type());
+            } else if (field1.isFormal()) {
+                isMatch = fieldAccepts(field1, field2);
+            } else if (field2.isFormal()) {
+                isMatch = fieldAccepts(field2, field1);
             } else {
                 isMatch = field1.equals(field2);
             }
@@ -89,6 +97,21 @@ public class Tuple implements ITuple {
         return isMatch;
     }
 
+    /**
+     * Verify if the given actual field fulfills the constraint of the given formal,
+     * plain formal fields accept any actual field
+     * @param formal The formal field, possibly a constraint field
+     * @param actual The actual field to validate
+     * @return True if the actual field is accepted, otherwise false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean fieldAccepts(IField formal, IField actual) {
+        if (formal instanceof IConstraintField) {
+            return ((IConstraintField) formal).accepts(actual.element());
+        }
+        return true;
+    }
+
     /**
      * Get the result of matching this tuple with the given one,
      * this method assumes both tuples are matchable
@@ -96,15 +119,14 @@ public class Tuple implements ITuple {
      * @return The resulting matched tuple
      */
     private ITuple getMatchTuple(ITuple tuple) {
-        List<IField> fields = new ArrayList<>();
+        IField[] fields = new IField[this.length()];
         for (int i = 0; i < this.length(); i++) {
             IField field1 = this.get(i);
             IField field2 = tuple.get(i);
-            IField resultField = getMatchField(field1, field2);
-            fields.add(resultField);
+            fields[i] = getMatchField(field1, field2);
         }
 
-        return new Tuple(fields);
+        return new Tuple(this.signature, fields);
     }
 
     /**
@@ -125,7 +147,7 @@ public class Tuple implements ITuple {
      */
     @Override
     public IField get(int position) {
-        return this.fields.get(position);
+        return this.fields[position];
     }
 
     /**
@@ -134,7 +156,16 @@ public class Tuple implements ITuple {
      */
     @Override
     public int length() {
-        return this.fields.size();
+        return this.fields.length;
+    }
+
+    /**
+     * Return the canonical signature of the tuple
+     * @return The signature of the tuple
+     */
+    @Override
+    public Signature signature() {
+        return this.signature;
     }
 
     /**
@@ -153,8 +184,8 @@ public class Tuple implements ITuple {
     public String toString() {
         StringBuilder string = new StringBuilder();
         string.append("(");
-        for (int i = 0; i < this.fields.size(); ++i) {
-            IField field = this.fields.get(i);
+        for (int i = 0; i < this.fields.length; ++i) {
+            IField field = this.fields[i];
             string.append(field.toString());
             string.append(", ");
         }
@@ -0,0 +1,245 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+class TupleIndex {
+
+    /**
+     * Map from signature -> positions of its fields to index, in order,
+     * tuples of other signatures aren't indexed
+     */
+    private final Map<Signature, int[]> indexedFields;
+
+    /**
+     * Map from (signature, position) -> sorted map from element -> positions in the container
+     */
+    private final Map<Key, ConcurrentNavigableMap<Object, Set<Integer>>> indexes;
+
+    /**
+     * Map from (signature, position) -> positions in the container of tuples
+     * holding a formal field there, they may match any actual element
+     */
+    private final Map<Key, Set<Integer>> formals;
+
+    /**
+     * Constructor for initializing an empty index of the given fields
+     * @param indexedFields Map from signature types -> positions of its fields to index
+     */
+    TupleIndex(Map<List<Class<?>>, Set<Integer>> indexedFields) {
+        this.indexedFields = new HashMap<>();
+        for (Map.Entry<List<Class<?>>, Set<Integer>> entry : indexedFields.entrySet()) {
+            Signature signature = Signature.of(entry.getKey().toArray(new Class<?>[0]));
+            int[] positions = entry.getValue().stream().mapToInt(Integer::intValue).sorted().toArray();
+            this.indexedFields.put(signature, positions);
+        }
+        this.indexes = new ConcurrentHashMap<>();
+        this.formals = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Index the configured fields of the given tuple stored at the given position,
+     * callers must hold the TS edit lock
+     * @param tuple The stored tuple
+     * @param position The position of the tuple in the container
+     */
+    void add(ITuple tuple, int position) {
+        int[] indexedPositions = this.indexedFields.get(tuple.signature());
+        if (indexedPositions == null) {
+            return;
+        }
+        for (int i : indexedPositions) {
+            IField field = tuple.get(i);
+            Key key = new Key(tuple.signature(), i);
+            if (field.isFormal()) {
+                this.formals.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(position);
+            } else if (field.element() != null) {
+                this.indexes
+                    .computeIfAbsent(key, k -> new ConcurrentSkipListMap<>())
+                    .computeIfAbsent(field.element(), k -> ConcurrentHashMap.newKeySet())
+                    .add(position);
+            }
+        }
+    }
+
+    /**
+     * Forget the fields of the given tuple stored at the given position,
+     * callers must hold the TS edit lock
+     * @param tuple The stored tuple
+     * @param position The position of the tuple in the container
+     */
+    void remove(ITuple tuple, int position) {
+        int[] indexedPositions = this.indexedFields.get(tuple.signature());
+        if (indexedPositions == null) {
+            return;
+        }
+        for (int i : indexedPositions) {
+            IField field = tuple.get(i);
+            Key key = new Key(tuple.signature(), i);
+            if (field.isFormal()) {
+                Set<Integer> positions = this.formals.get(key);
+                if (positions != null) {
+                    positions.remove(position);
+                }
+            } else if (field.element() != null) {
+                ConcurrentNavigableMap<Object, Set<Integer>> index = this.indexes.get(key);
+                Set<Integer> positions = index == null ? null : index.get(field.element());
+                if (positions != null) {
+                    positions.remove(position);
+                    if (positions.isEmpty()) {
+                        index.remove(field.element());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the positions of the tuples that may match the given template,
+     * using an actual field of the template if any or else a range field.
+     * Tuples holding a formal in the looked up position are candidates of actual fields.
+     * Candidates still need to be matched, they are a superset of the matches
+     * @param template The template to look up
+     * @return The candidate positions or none if the template can't be looked up
+     */
+    Optional<Iterable<Integer>> candidates(ITuple template) {
+        Signature signature = template.signature();
+        int[] indexedPositions = this.indexedFields.get(signature);
+        if (indexedPositions == null) {
+            return Optional.empty();
+        }
+        RangeField range = null;
+        int rangePosition = -1;
+        for (int i : indexedPositions) {
+            IField field = template.get(i);
+            if (field.isActual() && field.element() != null) {
+                Set<Integer> positions = index(signature, i).get(field.element());
+                Set<Integer> formalPositions = this.formals.get(new Key(signature, i));
+                return Optional.of(concat(positions, formalPositions));
+            }
+            if (range == null && field instanceof RangeField) {
+                range = (RangeField) field;
+                rangePosition = i;
+            }
+        }
+
+        if (range == null) {
+            return Optional.empty();
+        }
+        return Optional.of(flatten(subMap(index(signature, rangePosition), range)));
+    }
+
+    /**
+     * Return the sorted map of the given key, an empty one if nothing was indexed with it
+     * @param signature The signature of the indexed tuples
+     * @param position The position of the indexed field
+     * @return The sorted map from element -> positions
+     */
+    private ConcurrentNavigableMap<Object, Set<Integer>> index(Signature signature, int position) {
+        ConcurrentNavigableMap<Object, Set<Integer>> index = this.indexes.get(new Key(signature, position));
+        return index == null ? new ConcurrentSkipListMap<>() : index;
+    }
+
+    /**
+     * Return the view of the given sorted map within the given range
+     * @param index The sorted map from element -> positions
+     * @param range The range to look up
+     * @return The view of the sorted map within the range
+     */
+    private static ConcurrentNavigableMap<Object, Set<Integer>> subMap(
+            ConcurrentNavigableMap<Object, Set<Integer>> index, RangeField range) {
+        if (range.lower() != null && range.upper() != null) {
+            if (compare(range.lower(), range.upper()) > 0) {
+                return new ConcurrentSkipListMap<>();
+            }
+            return index.subMap(range.lower(), range.isLowerInclusive(), range.upper(), range.isUpperInclusive());
+        } else if (range.lower() != null) {
+            return index.tailMap(range.lower(), range.isLowerInclusive());
+        } else if (range.upper() != null) {
+            return index.headMap(range.upper(), range.isUpperInclusive());
+        } else {
+            return index;
+        }
+    }
+
+    /**
+     * Compare two elements of an indexed field, both of the same comparable type
+     * @param element The first element
+     * @param otherElement The second element
+     * @return The comparison of the elements in their natural order
+     */
+    @SuppressWarnings("unchecked")
+    private static int compare(Object element, Object otherElement) {
+        return ((Comparable<Object>) element).compareTo(otherElement);
+    }
+
+    /**
+     * Return a lazy iterable over the positions of both given sets
+     * @param positions The first set of positions, possibly null
+     * @param otherPositions The second set of positions, possibly null
+     * @return The iterable over the positions
+     */
+    private static Iterable<Integer> concat(Set<Integer> positions, Set<Integer> otherPositions) {
+        if (otherPositions == null || otherPositions.isEmpty()) {
+            return positions == null ? Collections.emptySet() : positions;
+        } else if (positions == null) {
+            return otherPositions;
+        }
+        return () -> Stream.concat(positions.stream(), otherPositions.stream()).iterator();
+    }
+
+    /**
+     * Return a lazy iterable over every position of the given view
+     * @param index The view of a sorted map from element -> positions
+     * @return The iterable over the positions
+     */
+    private static Iterable<Integer> flatten(ConcurrentNavigableMap<Object, Set<Integer>> index) {
+        return () -> index.values().stream().flatMap(Set::stream).iterator();
+    }
+
+    /**
+     * Determines if fields of the given type can be indexed, that is, final comparable
+     * types so every element of the type can be compared with each other
+     * @param type The type of the field
+     * @return True if the type can be indexed, otherwise false
+     */
+    static boolean isIndexable(Class<?> type) {
+        return Comparable.class.isAssignableFrom(type) && (Modifier.isFinal(type.getModifiers()) || type.isEnum());
+    }
+
+    /**
+     * Key of a sorted map, the position of a field in tuples of some signature,
+     * signatures are canonical so they are compared by identity
+     */
+    private static class Key {
+
+        private final Signature signature;
+
+        private final int position;
+
+        Key(Signature signature, int position) {
+            this.signature = signature;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) object;
+            return this.signature == key.signature && this.position == key.position;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.signature) + this.position;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import com.uniandes.jcbages10.metrics.Counter;
+
+import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+class TuplePublisher extends SubmissionPublisher<ITuple> {
+
+    /**
+     * The template new tuples are matched against
+     */
+    private final ITuple template;
+
+    /**
+     * Counter of matches dropped because a subscriber had no demand left
+     */
+    private final Counter droppedTuples;
+
+    /**
+     * Whether or not any subscriber has subscribed yet
+     */
+    private volatile boolean subscribed;
+
+    /**
+     * Constructor for initializing the template & the drop counter
+     * @param template The template new tuples are matched against
+     * @param droppedTuples The counter of dropped matches
+     */
+    TuplePublisher(ITuple template, Counter droppedTuples) {
+        this.template = template;
+        this.droppedTuples = droppedTuples;
+    }
+
+    /**
+     * Subscribe the given subscriber to the tuples matching the template
+     * @param subscriber The subscriber to add
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ITuple> subscriber) {
+        super.subscribe(subscriber);
+        this.subscribed = true;
+    }
+
+    /**
+     * Push the match of the given tuple to the subscribers if it matches the template,
+     * when a subscriber's buffer is full because it didn't request enough tuples the
+     * match is dropped instead of blocking the inserting thread & the publisher is
+     * closed exceptionally, so subscribers learn through onError that they missed matches
+     * @param tuple The inserted tuple
+     */
+    synchronized void publish(ITuple tuple) {
+        if (isClosed()) {
+            return;
+        }
+        Optional<ITuple> result = tuple.match(this.template);
+        if (result.isPresent()) {
+            offer(result.get(), (subscriber, item) -> {
+                this.droppedTuples.increment();
+                closeExceptionally(new IllegalStateException("Subscriber buffer overflow, matches were dropped"));
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Determines if the publisher won't deliver anything else, that is,
+     * it was closed or every subscriber it ever had cancelled
+     * @return True if the publisher can be forgotten, otherwise false
+     */
+    boolean isDone() {
+        return isClosed() || (this.subscribed && !hasSubscribers());
+    }
+
+}
@@ -1,53 +1,124 @@
 package com.uniandes.jcbages10.tuplespace;
 
+import com.uniandes.jcbages10.events.Events;
+import com.uniandes.jcbages10.events.TupleEvictionEvent;
+import com.uniandes.jcbages10.events.TupleOutEvent;
+import com.uniandes.jcbages10.events.TupleRetrieveEvent;
+import com.uniandes.jcbages10.metrics.Counter;
+import com.uniandes.jcbages10.metrics.Histogram;
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
 import com.uniandes.jcbages10.routing.IRouting;
 import com.uniandes.jcbages10.routing.Routing;
 
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 public class TupleSpace implements ITupleSpace {
 
     /**
-     * Tuples container fixed size (1M)
+     * Max number of out calls coalesced into a single insertion
      */
-    private final static int TUPLE_SPACE_SIZE = 1000000;
+    private final static int MAX_BATCH_SIZE = 256;
 
     /**
-     * Thread pool fixed size, determines max number of unresolved calls to TS
+     * Max time an out call waits before checking again if it can insert its batch
+     */
+    private final static long BATCH_WAIT_NANOS = 50000;
+
+    /**
+     * Name of the TS, unique among the TSs created by the factory
+     */
+    private final String name;
+
+    /**
+     * Tuples container fixed size
      */
-    private final static int MAX_CALLS_SIZE = 50;
+    private final int capacity;
 
     /**
-     * Singleton instance of the TS
+     * Thread pool fixed size, determines max number of unresolved calls to TS
      */
-    private static ITupleSpace instance;
+    private final int maxCalls;
 
     /**
      * Container of the tuples, initially full of Optional.empty()
      */
     private List<Optional<ITuple> > tuples;
 
+    /**
+     * Sorted indexes of the configured fields of the stored tuples, none if no field is indexed
+     */
+    private final TupleIndex index;
+
+    /**
+     * Scanner splitting full scans of the container in parallel segments, none if disabled
+     */
+    private final ParallelScanner scanner;
+
+    /**
+     * Positions of the stored tuples bucketed by leasing, for evicting & expiring them in bulk
+     */
+    private final LeaseIndex leases;
+
     /**
      * The number of non-empty Optionals in the tuples container
      */
-    private int tuplesSize;
+    private volatile int tuplesSize;
 
     /**
      * The number of unresolved calls to TS (read or in)
      */
-    private int unresolvedCalls;
+    private volatile int unresolvedCalls;
+
+    /**
+     * Whether or not unresolved in & read calls are queried to other nodes
+     */
+    private final boolean distributedRead;
+
+    /**
+     * Version of the container, increased on every tuple insertion
+     */
+    private volatile long insertVersion;
+
+    /**
+     * Out calls waiting to be inserted by the next batch
+     */
+    private final Queue<PendingOut> pendingOuts;
+
+    /**
+     * Whether or not some out call is inserting a batch
+     */
+    private final AtomicBoolean batching;
+
+    /**
+     * Map from signature -> arrival -> in & read calls waiting for a tuple of the signature,
+     * guarded by the edit lock
+     */
+    private final Map<Signature, NavigableMap<Long, Waiter>> waiters;
+
+    /**
+     * Number of in & read calls submitted, gives the arrival order of the waiting calls
+     */
+    private final AtomicLong arrivals;
 
     /**
-     * Random hash of the last tuple insertion
+     * The number of in & read calls waiting in the queues
      */
-    private UUID lastInsertHash;
+    private volatile int waitingCalls;
 
     /**
-     * Dummy object for blocking/notifying futures
+     * Dummy object for blocking/notifying atomically calls
      */
     private final Object futureBlock;
 
@@ -62,40 +133,222 @@ public class TupleSpace implements ITupleSpace {
     private final ExecutorService executor;
 
     /**
-     * Reference to the Routing singleton
+     * Routing scope of this TS
+     */
+    private final IRouting<ITuple> routing;
+
+    /**
+     * Publishers of the subscriptions to new tuples matching a template
+     */
+    private final List<TuplePublisher> publishers;
+
+    /**
+     * Metrics of this TS & its routing
+     */
+    private final MetricsRegistry metrics;
+
+    /**
+     * Number of tuples added by out, outMany & outRouting
+     */
+    private final Counter insertedTuples;
+
+    /**
+     * Number of tuples removed by in calls
+     */
+    private final Counter removedTuples;
+
+    /**
+     * Number of tuples erased to make room for new ones
+     */
+    private final Counter evictedTuples;
+
+    /**
+     * Number of erased tuples whose leasing was not expired yet
+     */
+    private final Counter evictedLiveTuples;
+
+    /**
+     * Number of tuples dropped at once with their fully expired lease bucket
+     */
+    private final Counter expiredTuples;
+
+    /**
+     * Number of inserted tuples handed directly to waiting in & read calls
+     */
+    private final Counter handedOffTuples;
+
+    /**
+     * Number of tuples removed because they were consumed in other nodes
+     */
+    private final Counter purgedTuples;
+
+    /**
+     * Number of matches dropped because a subscriber buffer was full
+     */
+    private final Counter droppedNotifications;
+
+    /**
+     * Number of atomic compound operations applied
+     */
+    private final Counter appliedOperations;
+
+    /**
+     * Time in nanoseconds taken by in calls since submitted until resolved
+     */
+    private final Histogram inLatency;
+
+    /**
+     * Time in nanoseconds taken by read calls since submitted until resolved
+     */
+    private final Histogram readLatency;
+
+    /**
+     * Number of slots visited by every scan looking for a matching tuple
+     */
+    private final Histogram scannedSlots;
+
+    /**
+     * Number of out calls inserted per batch
      */
-    private static IRouting<ITuple> routing = Routing.getInstance();
+    private final Histogram batchSizes;
 
     /**
-     * Private constructor, initialize containers & thread pool
+     * Package constructor used by the factory, initialize containers,
+     * thread pool & routing with the given configuration
+     * @param name The name of the TS
+     * @param configuration The configuration of the TS
      */
-    private TupleSpace() {
+    TupleSpace(String name, TupleSpaceConfiguration configuration) {
+        this.name = name;
+        this.capacity = configuration.capacity();
+        this.maxCalls = configuration.maxCalls();
+
         // Initialize tuple container
-        this.tuples = new ArrayList<>();
-        for (int i = 0; i < TUPLE_SPACE_SIZE; i++) {
+        this.tuples = new ArrayList<>(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
             this.tuples.add(Optional.empty());
         }
         this.tuplesSize = 0;
-        this.lastInsertHash = UUID.randomUUID();
+        this.index = configuration.indexedFields().isEmpty() ? null : new TupleIndex(configuration.indexedFields());
+        this.scanner = configuration.scanParallelism() > 1 ? new ParallelScanner(configuration.scanParallelism()) : null;
+        this.leases = new LeaseIndex(this.capacity);
+        CoarseClock.acquire();
+        this.distributedRead = configuration.isDistributedRead();
+        this.insertVersion = 0;
+        this.pendingOuts = new ConcurrentLinkedQueue<>();
+        this.batching = new AtomicBoolean();
 
         // Initialize thread pool
-        this.executor = Executors.newFixedThreadPool(MAX_CALLS_SIZE);
+        this.executor = Executors.newFixedThreadPool(this.maxCalls);
         this.unresolvedCalls = 0;
 
+        // Initialize waiter queues
+        this.waiters = new HashMap<>();
+        this.arrivals = new AtomicLong();
+        this.waitingCalls = 0;
+
         // Initialize dummy block objects
         this.futureBlock = new Object();
         this.editBlock = new Object();
+
+        // Initialize subscriptions
+        this.publishers = new CopyOnWriteArrayList<>();
+
+        // Initialize metrics
+        this.metrics = new MetricsRegistry();
+        this.metrics.gauge("tuples.size", () -> this.tuplesSize);
+        this.metrics.gauge("tuples.capacity", () -> this.capacity);
+        this.metrics.gauge("calls.unresolved", () -> this.unresolvedCalls);
+        this.metrics.gauge("calls.waiting", () -> this.waitingCalls);
+        this.metrics.gauge("subscriptions", () -> this.publishers.size());
+        this.insertedTuples = this.metrics.counter("tuples.inserted");
+        this.removedTuples = this.metrics.counter("tuples.removed");
+        this.evictedTuples = this.metrics.counter("tuples.evicted");
+        this.evictedLiveTuples = this.metrics.counter("tuples.evicted.live");
+        this.expiredTuples = this.metrics.counter("tuples.expired");
+        this.handedOffTuples = this.metrics.counter("tuples.handed.off");
+        this.purgedTuples = this.metrics.counter("tuples.purged");
+        this.droppedNotifications = this.metrics.counter("subscriptions.dropped");
+        this.appliedOperations = this.metrics.counter("operations.applied");
+        this.inLatency = this.metrics.histogram("in.latency.nanos");
+        this.readLatency = this.metrics.histogram("read.latency.nanos");
+        this.scannedSlots = this.metrics.histogram("match.scanned.slots");
+        this.batchSizes = this.metrics.histogram("out.batch.size");
+
+        // Initialize routing scope, stop using the clock & the threads if it can't be restored
+        Routing routing = null;
+        try {
+            routing = new Routing(this, configuration);
+            this.routing = routing;
+            this.routing.restore();
+            this.metrics.register("TupleSpace", name);
+        } catch (RuntimeException e) {
+            this.executor.shutdownNow();
+            if (this.scanner != null) {
+                this.scanner.shutdown();
+            }
+            CoarseClock.release();
+            if (routing != null) {
+                routing.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get the default instance of the TS
+     * @return default instance of TS
+     */
+    public static ITupleSpace getInstance() {
+        return TupleSpaceFactory.getDefault();
+    }
+
+    /**
+     * Return the name of the TS
+     * @return The name of the TS
+     */
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Return the routing scope of the TS
+     * @return The routing of the TS
+     */
+    @Override
+    public IRouting<ITuple> routing() {
+        return this.routing;
     }
 
     /**
-     * Get the singleton instance of the TS
-     * @return instance of TS
+     * Return the metrics of the TS & its routing
+     * @return The metrics registry of the TS
      */
-    public static synchronized ITupleSpace getInstance() {
-        if (instance == null) {
-            instance = new TupleSpace();
+    @Override
+    public MetricsRegistry metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Shutdown the thread pool, pending calls are interrupted, complete the
+     * subscriptions, stop exposing the metrics through JMX & stop using the coarse clock
+     */
+    @Override
+    public void shutdown() {
+        if (!this.executor.isShutdown()) {
+            CoarseClock.release();
         }
-        return instance;
+        this.executor.shutdownNow();
+        if (this.scanner != null) {
+            this.scanner.shutdown();
+        }
+        for (TuplePublisher publisher : this.publishers) {
+            publisher.close();
+        }
+        this.publishers.clear();
+        this.routing.close();
+        this.metrics.unregister();
     }
 
     /**
@@ -120,7 +373,8 @@ public class TupleSpace implements ITupleSpace {
 
     /**
      * Add multiple tuples to the container. Intended to be used by
-     * routing layer only as it wont call routing.add() method
+     * routing layer only as it wont call routing.add() method,
+     * tuples routing no longer carries when they are inserted are ignored
      * @param tuples The tuples to add
      */
     @Override
@@ -128,30 +382,257 @@ public class TupleSpace implements ITupleSpace {
         addMultipleTuples(false, tuples);
     }
 
+    /**
+     * Remove the given tuples, consumed in other nodes, from the container.
+     * Intended to be used by routing layer only when it learns their tombstones,
+     * tuples no longer in the container are ignored
+     * @param tuples The tuples to remove
+     */
+    @Override
+    public void purgeRouting(ITuple... tuples) {
+        synchronized (this.editBlock) {
+            for (ITuple tuple : tuples) {
+                PrimitiveIterator.OfInt positions = positionsToScan(tuple);
+                while (positions.hasNext()) {
+                    int position = positions.nextInt();
+                    Optional<ITuple> existingTuple = this.tuples.get(position);
+                    if (existingTuple.isPresent() && existingTuple.get() == tuple) {
+                        clearPosition(position, tuple, false);
+                        this.purgedTuples.increment();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Auxiliary function for both out, outMany & outRouting,
-     * call the routing add function if specified
+     * call the routing add function if specified. Concurrent calls are
+     * coalesced: the call that finds no batch in progress inserts every
+     * pending call at once while the others wait for it, so producers
+     * share a single critical section, routing update & wake up
      * @param tuples The tuples to add
      * @param addRouting Whether or not to call routing.add()
      */
     private void addMultipleTuples(boolean addRouting, ITuple... tuples) {
+        TupleOutEvent event = new TupleOutEvent();
+        event.begin();
+
+        PendingOut pendingOut = new PendingOut(tuples, addRouting);
+        this.pendingOuts.add(pendingOut);
+        while (!pendingOut.done) {
+            if (this.batching.compareAndSet(false, true)) {
+                try {
+                    insertBatch();
+                } finally {
+                    this.batching.set(false);
+                }
+                // Hand the next batch to a waiting call right away
+                PendingOut nextOut = this.pendingOuts.peek();
+                if (nextOut != null) {
+                    LockSupport.unpark(nextOut.caller);
+                }
+            } else {
+                LockSupport.parkNanos(this, BATCH_WAIT_NANOS);
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.space = this.name;
+            event.tuples = tuples.length;
+            event.fromRouting = !addRouting;
+            event.commit();
+        }
+    }
+
+    /**
+     * Insert the tuples of the oldest pending out calls in a single critical section,
+     * routed tuples first, then release their callers & wake up the unresolved calls once
+     */
+    private void insertBatch() {
+        List<PendingOut> batch = new ArrayList<>();
+        int numberOfTuples = 0;
+        int numberOfRouted = 0;
+        for (PendingOut pendingOut; batch.size() < MAX_BATCH_SIZE && (pendingOut = this.pendingOuts.poll()) != null; ) {
+            batch.add(pendingOut);
+            numberOfTuples += pendingOut.tuples.length;
+            numberOfRouted += pendingOut.addRouting ? pendingOut.tuples.length : 0;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        ITuple[] tuples = new ITuple[numberOfTuples];
+        int routedPosition = 0;
+        int unroutedPosition = numberOfRouted;
+        for (PendingOut pendingOut : batch) {
+            int position = pendingOut.addRouting ? routedPosition : unroutedPosition;
+            System.arraycopy(pendingOut.tuples, 0, tuples, position, pendingOut.tuples.length);
+            if (pendingOut.addRouting) {
+                routedPosition += pendingOut.tuples.length;
+            } else {
+                unroutedPosition += pendingOut.tuples.length;
+            }
+        }
+
+        int numberOfInserted;
         synchronized (this.editBlock) {
-            List<Integer> positions = allocatePositions(tuples.length);
+            tuples = carriedTuples(tuples, numberOfRouted);
+            numberOfInserted = insertTuples(tuples, numberOfRouted);
+        }
+        this.batchSizes.record(batch.size());
+        for (PendingOut pendingOut : batch) {
+            pendingOut.done = true;
+            LockSupport.unpark(pendingOut.caller);
+        }
+        notifyInsertion(tuples, numberOfInserted);
+    }
+
+    /**
+     * Return the given tuples without the ones given by routing that it doesn't carry
+     * anymore, a tombstone consumed their message after routing released its lock &
+     * before this batch, so its purge ran before they were in the container.
+     * Callers must hold the edit lock so later purges wait for the insertion
+     * @param tuples The tuples to add, the routed ones first
+     * @param numberOfRouted The number of tuples, from the first one, to add to routing
+     * @return The tuples to insert
+     */
+    private ITuple[] carriedTuples(ITuple[] tuples, int numberOfRouted) {
+        int numberOfCarried = numberOfRouted;
+        for (int i = numberOfRouted; i < tuples.length; i++) {
+            if (this.routing.carries(tuples[i])) {
+                tuples[numberOfCarried++] = tuples[i];
+            }
+        }
+        return numberOfCarried == tuples.length ? tuples : Arrays.copyOf(tuples, numberOfCarried);
+    }
+
+    /**
+     * Place the given tuples in the container, erasing the oldest ones if needed,
+     * callers must hold the edit lock and call notifyInsertion() after releasing it
+     * @param addRouting Whether or not to call routing.add()
+     * @param tuples The tuples to add
+     * @return The number of tuples actually inserted
+     */
+    private int insertTuples(boolean addRouting, ITuple... tuples) {
+        return insertTuples(tuples, addRouting ? tuples.length : 0);
+    }
+
+    /**
+     * Place the given tuples in the container, erasing the oldest ones if needed,
+     * add the first given number of them to routing at once and hand them to
+     * the waiting calls they match, callers must hold the edit lock and call
+     * notifyInsertion() after releasing it
+     * @param tuples The tuples to add
+     * @param numberOfRouted The number of tuples, from the first one, to add to routing
+     * @return The number of tuples actually inserted
+     */
+    private int insertTuples(ITuple[] tuples, int numberOfRouted) {
+        dropExpiredTuples(CoarseClock.millis());
+        List<Integer> positions = allocatePositions(tuples.length);
+        for (int i = 0; i < positions.size(); ++i) {
+            ITuple tuple = tuples[i];
+            this.tuples.set(positions.get(i), Optional.of(tuple));
+            this.tuplesSize++;
+            this.leases.add(tuple, positions.get(i));
+            if (this.index != null) {
+                this.index.add(tuple, positions.get(i));
+            }
+        }
+        this.insertedTuples.add(positions.size());
+
+        int numberOfRoutedInserted = Math.min(numberOfRouted, positions.size());
+        if (numberOfRoutedInserted > 0) {
+            this.routing.addMany(Arrays.asList(tuples).subList(0, numberOfRoutedInserted));
+        }
+        if (this.waitingCalls > 0) {
+            long currentTime = CoarseClock.millis();
             for (int i = 0; i < positions.size(); ++i) {
-                ITuple tuple = tuples[i];
-                this.tuples.set(positions.get(i), Optional.of(tuple));
-                this.tuplesSize++;
+                handOff(positions.get(i), tuples[i], currentTime);
+            }
+        }
+        this.insertVersion++;
+        return positions.size();
+    }
 
-                if (addRouting) {
-                    routing.add(tuple);
-                }
+    /**
+     * Hand the given tuple, just inserted at the given position, to the calls waiting
+     * for a tuple of its signature in the order they were submitted: every read call
+     * before the first in call it matches gets it, that in call removes it & no later
+     * call gets it. Waiting calls are woken up with their result so they never race
+     * to rescan, callers must hold the edit lock
+     * @param position The position of the tuple in the container
+     * @param tuple The inserted tuple
+     * @param currentTime The time the leasing of the tuple is checked against
+     */
+    private void handOff(int position, ITuple tuple, long currentTime) {
+        NavigableMap<Long, Waiter> queue = this.waiters.get(tuple.signature());
+        if (queue == null || !isTupleRelevant(tuple, currentTime)) {
+            return;
+        }
+
+        Iterator<Waiter> iterator = queue.values().iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            Optional<ITuple> result = tuple.match(waiter.template);
+            if (!result.isPresent()) {
+                continue;
+            }
+            iterator.remove();
+            this.waitingCalls--;
+            if (waiter.remove) {
+                clearPosition(position, tuple, true);
+                this.removedTuples.increment();
             }
-            this.lastInsertHash = UUID.randomUUID();
+            this.handedOffTuples.increment();
+            waiter.result = result.get();
+            LockSupport.unpark(waiter.caller);
+            if (waiter.remove) {
+                break;
+            }
+        }
+        if (queue.isEmpty()) {
+            this.waiters.remove(tuple.signature());
         }
+    }
 
+    /**
+     * Wake up the unresolved atomically calls & push the given tuples to the subscriptions,
+     * callers must not hold the edit lock
+     * @param tuples The inserted tuples
+     * @param numberOfTuples The number of tuples actually inserted
+     */
+    private void notifyInsertion(ITuple[] tuples, int numberOfTuples) {
         synchronized (this.futureBlock) {
             this.futureBlock.notifyAll();
         }
+
+        if (!this.publishers.isEmpty()) {
+            publish(tuples, numberOfTuples);
+        }
+    }
+
+    /**
+     * Push the given inserted tuples to the subscriptions they match,
+     * forgetting the subscriptions that are done
+     * @param tuples The inserted tuples
+     * @param numberOfTuples The number of tuples actually inserted
+     */
+    private void publish(ITuple[] tuples, int numberOfTuples) {
+        long currentTime = CoarseClock.millis();
+        for (TuplePublisher publisher : this.publishers) {
+            if (publisher.isDone()) {
+                this.publishers.remove(publisher);
+                continue;
+            }
+            for (int i = 0; i < numberOfTuples; i++) {
+                if (isTupleRelevant(tuples[i], currentTime)) {
+                    publisher.publish(tuples[i]);
+                }
+            }
+        }
     }
 
     /**
@@ -164,7 +645,7 @@ public class TupleSpace implements ITupleSpace {
     private List<Integer> allocatePositions(int numberOfPositions) {
         List<Integer> positions = new ArrayList<>();
 
-        if (this.tuplesSize < TUPLE_SPACE_SIZE) {
+        if (this.tuplesSize < this.capacity) {
             positions.addAll(findEmptyPositions(numberOfPositions));
         }
 
@@ -184,7 +665,7 @@ public class TupleSpace implements ITupleSpace {
      */
     private List<Integer> findEmptyPositions(int numberOfPositions) {
         List<Integer> positions = new ArrayList<>();
-        for (int i = 0; i < TUPLE_SPACE_SIZE && positions.size() < numberOfPositions; i++) {
+        for (int i = 0; i < this.capacity && positions.size() < numberOfPositions; i++) {
             Optional<ITuple> tuple = this.tuples.get(i);
             if (!tuple.isPresent()) {
                 positions.add(i);
@@ -194,36 +675,55 @@ public class TupleSpace implements ITupleSpace {
     }
 
     /**
-     * Erase the tuples with the oldest leasing time,
-     * this method assumes that the tuples container is not empty
+     * Erase the tuples with the oldest leasing time, taken in order from
+     * the lease buckets, this method assumes that the tuples container is not empty
      * @return The positions of the erased tuples
      */
     private List<Integer> eraseTuplesWithOldestLeasing(int numberOfPositions) {
-        Comparator<ITuple> comparator = new TupleLeasingComparator();
-        TreeMap<ITuple, Integer> sortedTuples = new TreeMap<>(comparator);
+        TupleEvictionEvent event = new TupleEvictionEvent();
+        event.begin();
 
-        for (int i = 0; i < TUPLE_SPACE_SIZE; i++) {
-            Optional<ITuple> optionalTuple = this.tuples.get(i);
-            if (optionalTuple.isPresent()) {
-                ITuple tuple = optionalTuple.get();
-                sortedTuples.put(tuple, i);
-            }
+        long currentTime = CoarseClock.millis();
+        int evictedLive = 0;
+        List<Integer> positions = this.leases.oldest(numberOfPositions);
+        for (Integer position : positions) {
+            ITuple tuple = this.tuples.get(position).get();
+            clearPosition(position, tuple, false);
 
-            if (sortedTuples.size() > numberOfPositions) {
-                ITuple tuple = sortedTuples.lastKey();
-                sortedTuples.remove(tuple);
+            this.evictedTuples.increment();
+            if (isTupleRelevant(tuple, currentTime)) {
+                this.evictedLiveTuples.increment();
+                evictedLive++;
             }
         }
 
-        List<Integer> positions = new ArrayList<>(sortedTuples.values());
-        for (Integer position : positions) {
-            Optional<ITuple> tuple = this.tuples.get(position);
-            tuple.ifPresent(routing::remove);
-            this.tuples.set(position, Optional.empty());
+        event.end();
+        if (event.shouldCommit()) {
+            event.space = this.name;
+            event.evicted = positions.size();
+            event.evictedLive = evictedLive;
+            event.commit();
         }
         return positions;
     }
 
+    /**
+     * Remove at once every tuple of the lease buckets fully expired at the given time,
+     * so scans don't visit them & check their leasing one by one anymore
+     * @param currentTime The current time in milliseconds
+     */
+    private void dropExpiredTuples(long currentTime) {
+        if (!this.leases.hasExpired(currentTime)) {
+            return;
+        }
+        synchronized (this.editBlock) {
+            for (Integer position : this.leases.expired(currentTime)) {
+                clearPosition(position, this.tuples.get(position).get(), false);
+                this.expiredTuples.increment();
+            }
+        }
+    }
+
     /**
      * Remove & return a tuple from the container matching given one
      * @param tuple The tuple to try to match
@@ -245,43 +745,318 @@ public class TupleSpace implements ITupleSpace {
     }
 
     /**
-     * Auxiliary function for performing both in & read methods
+     * Return every tuple of the container matching the given one without waiting
+     * for matches nor removing them, in the order of their positions
      * @param tuple The tuple to try to match
-     * @param remove Whether or not to remove the matched tuple
-     * @return The matched tuple
+     * @return The matched tuples
      */
-    private Future<ITuple> retrieve(ITuple tuple, boolean remove) throws CancellationException {
-        // abort if unresolved calls is max
+    @Override
+    public List<ITuple> readAll(ITuple tuple) {
+        long currentTime = CoarseClock.millis();
+        dropExpiredTuples(currentTime);
+        Optional<Iterable<Integer>> candidates = candidates(tuple);
+        if (!candidates.isPresent() && this.scanner != null) {
+            this.scannedSlots.record(this.capacity);
+            return this.scanner.collect(this.capacity, position -> matchTupleAt(position, tuple, false, currentTime));
+        }
+
+        List<ITuple> results = new ArrayList<>();
+        PrimitiveIterator.OfInt positions = positionsToScan(candidates);
+        int scanned = 0;
+        for (; positions.hasNext(); scanned++) {
+            matchTupleAt(positions.nextInt(), tuple, false, currentTime).ifPresent(results::add);
+        }
+        this.scannedSlots.record(scanned);
+        return results;
+    }
+
+    /**
+     * Return the number of tuples of the container matching the given one
+     * @param tuple The tuple to try to match
+     * @return The number of matching tuples
+     */
+    @Override
+    public int count(ITuple tuple) {
+        return readAll(tuple).size();
+    }
+
+    /**
+     * Subscribe to the tuples matching the given one inserted from now on,
+     * either by out calls or received from other nodes, in the fashion of Linda notify.
+     * Every match is pushed once to every subscriber according with its demand,
+     * matches arriving when a subscriber has no demand left are buffered up to
+     * Flow.defaultBufferSize(), once a buffer overflows the match is dropped & the
+     * publisher completes its subscribers with an IllegalStateException through onError
+     * @param tuple The tuple to try to match
+     * @return The publisher of the matched tuples
+     */
+    @Override
+    public Flow.Publisher<ITuple> subscribe(ITuple tuple) {
+        TuplePublisher publisher = new TuplePublisher(tuple, this.droppedNotifications);
+        this.publishers.add(publisher);
+        return publisher;
+    }
+
+    /**
+     * Atomically perform the given steps once all the in, read & update templates
+     * can be matched at the same time: either every step is applied under a single
+     * acquisition of the edit lock or none is, and the call waits for new tuples.
+     * Templates of in & update steps never match the same tuple twice
+     * @param operations The steps to perform
+     * @return The results of the steps in order: matched tuples or added tuples for out steps
+     */
+    @Override
+    public Future<List<ITuple>> atomically(Operation... operations) throws CancellationException {
         if (!canHandleCall()) {
             throw new CancellationException("Number of unresolved calls is max");
         }
 
         return executor.submit(() -> {
-            Optional<ITuple> result = Optional.empty();
-            while (!result.isPresent()) {
-                UUID currentInsertHash = this.lastInsertHash;
-                result = getMatchingTuple(tuple, remove);
-                if (!result.isPresent() && currentInsertHash.equals(this.lastInsertHash)) {
-                    synchronized (this.futureBlock) {
+            try {
+                return awaitResult(() -> tryOperations(operations));
+            } finally {
+                resolveCall();
+            }
+        });
+    }
+
+    /**
+     * Atomically replace a tuple matching the given one with the given replacement,
+     * without waiting in case there's no match
+     * @param expected The tuple to try to match
+     * @param replacement The tuple to add in place of the matched one
+     * @return True if a tuple was matched & replaced, otherwise false
+     */
+    @Override
+    public boolean compareAndSwap(ITuple expected, ITuple replacement) {
+        return tryOperations(Operation.in(expected), Operation.out(replacement)).isPresent();
+    }
+
+    /**
+     * Try to match every template of the given steps and, only if all of them
+     * match, remove the matched tuples of in & update steps and add the tuples
+     * of out & update steps, everything under the edit lock
+     * @param operations The steps to perform
+     * @return The results of the steps or none if any template didn't match
+     */
+    private Optional<List<ITuple>> tryOperations(Operation... operations) {
+        List<ITuple> results = new ArrayList<>(operations.length);
+        List<ITuple> addedTuples = new ArrayList<>();
+        int numberOfTuples;
+
+        long currentTime = CoarseClock.millis();
+        synchronized (this.editBlock) {
+            Map<Integer, ITuple> claimedTuples = new LinkedHashMap<>();
+            for (Operation operation : operations) {
+                if (operation.type() == Operation.Type.OUT) {
+                    results.add(operation.tuple());
+                    addedTuples.add(operation.tuple());
+                    continue;
+                }
+
+                int position = findMatchingPosition(operation.tuple(), claimedTuples.keySet(), currentTime);
+                if (position < 0) {
+                    return Optional.empty();
+                }
+                ITuple existingTuple = this.tuples.get(position).get();
+                ITuple matchedTuple = existingTuple.match(operation.tuple()).get();
+                results.add(matchedTuple);
+
+                if (operation.type() != Operation.Type.READ) {
+                    claimedTuples.put(position, existingTuple);
+                }
+                if (operation.type() == Operation.Type.UPDATE) {
+                    addedTuples.add(operation.function().apply(matchedTuple));
+                }
+            }
+
+            for (Map.Entry<Integer, ITuple> claimedTuple : claimedTuples.entrySet()) {
+                clearPosition(claimedTuple.getKey(), claimedTuple.getValue(), true);
+                this.removedTuples.increment();
+            }
+            numberOfTuples = insertTuples(true, addedTuples.toArray(new ITuple[0]));
+        }
+
+        this.appliedOperations.increment();
+        if (numberOfTuples > 0) {
+            notifyInsertion(addedTuples.toArray(new ITuple[0]), numberOfTuples);
+        }
+        return Optional.of(results);
+    }
+
+    /**
+     * Find the position of a relevant tuple matching the given one,
+     * callers must hold the edit lock
+     * @param tuple The tuple to try to match
+     * @param excludedPositions The positions to skip
+     * @param currentTime The time the leasing of the tuples is checked against
+     * @return The position of the matching tuple or -1 if there's none
+     */
+    private int findMatchingPosition(ITuple tuple, Set<Integer> excludedPositions, long currentTime) {
+        PrimitiveIterator.OfInt positions = positionsToScan(tuple);
+        while (positions.hasNext()) {
+            int position = positions.nextInt();
+            Optional<ITuple> existingTuple = this.tuples.get(position);
+            if (existingTuple.isPresent()
+                    && !excludedPositions.contains(position)
+                    && isTupleRelevant(existingTuple.get(), currentTime)
+                    && existingTuple.get().match(tuple).isPresent()) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keep trying the given attempt until it gives a result, waiting
+     * for new tuples to be inserted between failed attempts, used by
+     * atomically calls whose steps can't be handed a single tuple.
+     * Interrupted calls give up keeping the interrupt status of the thread
+     * @param attempt The attempt to perform
+     * @return The result of the first successful attempt
+     * @throws CancellationException If the call was interrupted while waiting
+     */
+    private <T> T awaitResult(Supplier<Optional<T>> attempt) throws CancellationException {
+        Optional<T> result = Optional.empty();
+        while (!result.isPresent()) {
+            long currentInsertVersion = this.insertVersion;
+            result = attempt.get();
+            if (!result.isPresent()) {
+                synchronized (this.futureBlock) {
+                    // Checked under the lock notifyInsertion() takes, so no insertion is missed
+                    if (currentInsertVersion == this.insertVersion) {
                         try {
                             this.futureBlock.wait();
                         } catch (InterruptedException e) {
-                            e.printStackTrace();
+                            Thread.currentThread().interrupt();
+                            throw new CancellationException("Call interrupted while waiting for a match");
                         }
                     }
                 }
             }
-            resolveCall();
-            return result.get();
+        }
+        return result.get();
+    }
+
+    /**
+     * Auxiliary function for performing both in & read methods
+     * @param tuple The tuple to try to match
+     * @param remove Whether or not to remove the matched tuple
+     * @return The matched tuple
+     */
+    private Future<ITuple> retrieve(ITuple tuple, boolean remove) throws CancellationException {
+        // abort if unresolved calls is max
+        if (!canHandleCall()) {
+            throw new CancellationException("Number of unresolved calls is max");
+        }
+
+        Histogram latency = remove ? this.inLatency : this.readLatency;
+        long submitTime = System.nanoTime();
+        long arrival = this.arrivals.getAndIncrement();
+        return executor.submit(() -> {
+            TupleRetrieveEvent event = new TupleRetrieveEvent();
+            event.begin();
+
+            ITuple result;
+            try {
+                result = awaitMatch(tuple, remove, arrival, event);
+            } finally {
+                resolveCall();
+            }
+            long waitTime = System.nanoTime() - submitTime;
+            latency.record(waitTime);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.space = this.name;
+                event.operation = remove ? "in" : "read";
+                event.template = Events.signature(tuple);
+                event.waitTime = waitTime;
+                event.result = Events.signature(result);
+                event.commit();
+            }
+            return result;
         });
     }
 
+    /**
+     * Find a tuple matching the given one or else wait in the queue of its signature
+     * until an insertion hands one over, in case remove is set to true remove it from the container.
+     * The queue is only joined if no tuple was inserted since the failed scan, checked under the
+     * edit lock insertions take, so no insertion is missed. Calls are placed in the queue by
+     * arrival rather than by the time their scan failed. Interrupted calls leave the queue
+     * @param tuple The tuple to try to match
+     * @param remove Whether or not to remove the matched tuple
+     * @param arrival The position of the call in the order of submission
+     * @param event The event accumulating the scans of the call
+     * @return The matched tuple
+     * @throws CancellationException If the call was interrupted while waiting
+     */
+    private ITuple awaitMatch(ITuple tuple, boolean remove, long arrival, TupleRetrieveEvent event)
+            throws CancellationException {
+        UUID queryId = null;
+        Waiter waiter = null;
+        try {
+            while (waiter == null) {
+                long currentInsertVersion = this.insertVersion;
+                Optional<ITuple> match = getMatchingTuple(tuple, remove, event);
+                if (match.isPresent()) {
+                    return match.get();
+                }
+                if (this.distributedRead && queryId == null) {
+                    queryId = this.routing.query(tuple);
+                }
+                synchronized (this.editBlock) {
+                    if (currentInsertVersion == this.insertVersion) {
+                        waiter = new Waiter(tuple, remove, arrival);
+                        this.waiters.computeIfAbsent(tuple.signature(), signature -> new TreeMap<>()).put(arrival, waiter);
+                        this.waitingCalls++;
+                    }
+                }
+            }
+
+            while (waiter.result == null) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    leaveQueue(waiter);
+                }
+            }
+            event.handedOff = true;
+            return waiter.result;
+        } finally {
+            if (queryId != null) {
+                this.routing.cancelQuery(queryId);
+            }
+        }
+    }
+
+    /**
+     * Remove the given interrupted call from the queue of its signature,
+     * unless a tuple was already handed to it
+     * @param waiter The interrupted call
+     * @throws CancellationException If the call left the queue without a result
+     */
+    private void leaveQueue(Waiter waiter) throws CancellationException {
+        synchronized (this.editBlock) {
+            if (waiter.result != null) {
+                return;
+            }
+            NavigableMap<Long, Waiter> queue = this.waiters.get(waiter.template.signature());
+            queue.remove(waiter.arrival);
+            this.waitingCalls--;
+            if (queue.isEmpty()) {
+                this.waiters.remove(waiter.template.signature());
+            }
+        }
+        throw new CancellationException("Call interrupted while waiting for a match");
+    }
+
     /**
      * Determines if the max number of unresolved calls was reached,
      * otherwise increase the number of unresolved calls by one
      */
     private synchronized boolean canHandleCall() {
-        if (this.unresolvedCalls >= MAX_CALLS_SIZE) {
+        if (this.unresolvedCalls >= this.maxCalls) {
             return false;
         } else {
             this.unresolvedCalls++;
@@ -298,21 +1073,149 @@ public class TupleSpace implements ITupleSpace {
 
     /**
      * Find a tuple matching the given one and return the matched result,
-     * in case remove is set to true remove it from the container
+     * in case remove is set to true remove it from the container.
+     * Templates with an indexable actual or range field only visit the candidates
+     * given by the indexes, others scan the whole container. Every tuple of the scan is checked
+     * against the same time, fully expired lease buckets are dropped beforehand
      * @param tuple The tuple to try to match
      * @param remove Whether or not to remove the matched tuple
+     * @param event The event accumulating the scans of the call
      * @return The matched tuple
      */
-    private Optional<ITuple> getMatchingTuple(ITuple tuple, boolean remove) {
+    private Optional<ITuple> getMatchingTuple(ITuple tuple, boolean remove, TupleRetrieveEvent event) {
+        long currentTime = CoarseClock.millis();
+        dropExpiredTuples(currentTime);
+        Optional<Iterable<Integer>> candidates = candidates(tuple);
+
         Optional<ITuple> result = Optional.empty();
-        for (int i = 0; i < TUPLE_SPACE_SIZE && !result.isPresent(); i++) {
-            Optional<ITuple> existingTuple = this.tuples.get(i);
-            if (existingTuple.isPresent() && isTupleRelevant(existingTuple.get())) {
-                result = existingTuple.get().match(tuple);
-                if (result.isPresent() && remove && !tryRemovingTuple(i)) {
-                    result = Optional.empty();
+        long scanned = 0;
+        if (!candidates.isPresent() && this.scanner != null) {
+            LongAdder scannedPositions = new LongAdder();
+            result = this.scanner.findAny(this.capacity,
+                (position, claimed) -> claimTupleAt(position, tuple, remove, claimed, currentTime), scannedPositions);
+            scanned = scannedPositions.sum();
+        } else {
+            PrimitiveIterator.OfInt positions = positionsToScan(candidates);
+            for (; positions.hasNext() && !result.isPresent(); scanned++) {
+                result = matchTupleAt(positions.nextInt(), tuple, remove, currentTime);
+            }
+        }
+        this.scannedSlots.record(scanned);
+        event.scans++;
+        event.scannedSlots += scanned;
+        return result;
+    }
+
+    /**
+     * Return the positions that may hold a tuple matching the given one,
+     * the candidates given by the indexes if the template can be looked up
+     * or else every position of the container
+     * @param tuple The tuple to try to match
+     * @return The positions to scan
+     */
+    private PrimitiveIterator.OfInt positionsToScan(ITuple tuple) {
+        return positionsToScan(candidates(tuple));
+    }
+
+    /**
+     * Return the candidate positions given by the indexes for the given tuple
+     * @param tuple The tuple to try to match
+     * @return The candidate positions or none if the whole container must be scanned
+     */
+    private Optional<Iterable<Integer>> candidates(ITuple tuple) {
+        return this.index == null ? Optional.empty() : this.index.candidates(tuple);
+    }
+
+    /**
+     * Return the given candidate positions or every position of the container if none
+     * @param candidates The candidate positions given by the indexes
+     * @return The positions to scan
+     */
+    private PrimitiveIterator.OfInt positionsToScan(Optional<Iterable<Integer>> candidates) {
+        if (!candidates.isPresent()) {
+            return new PrimitiveIterator.OfInt() {
+                private int position = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return this.position < TupleSpace.this.capacity;
+                }
+
+                @Override
+                public int nextInt() {
+                    return this.position++;
                 }
+            };
+        }
+
+        Iterator<Integer> positions = candidates.get().iterator();
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return positions.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return positions.next();
             }
+        };
+    }
+
+    /**
+     * Try to match the tuple at the given position with the given one and
+     * return the matched result, in case remove is set to true remove it from the container
+     * @param position The position of the tuple in the container
+     * @param tuple The tuple to try to match
+     * @param remove Whether or not to remove the matched tuple
+     * @param currentTime The time the leasing of the tuple is checked against
+     * @return The matched tuple or none if there's no relevant tuple matching
+     */
+    private Optional<ITuple> matchTupleAt(int position, ITuple tuple, boolean remove, long currentTime) {
+        Optional<ITuple> existingTuple = this.tuples.get(position);
+        if (!existingTuple.isPresent() || !isTupleRelevant(existingTuple.get(), currentTime)) {
+            return Optional.empty();
+        }
+
+        Optional<ITuple> result = existingTuple.get().match(tuple);
+        if (result.isPresent() && remove && !tryRemovingTuple(position, existingTuple.get())) {
+            result = Optional.empty();
+        }
+        return result;
+    }
+
+    /**
+     * Same as matchTupleAt() for parallel scans, the match is only returned if no other
+     * segment claimed one before, for in calls the check & the removal happen
+     * under the edit lock so a single tuple is removed per call
+     * @param position The position of the tuple in the container
+     * @param tuple The tuple to try to match
+     * @param remove Whether or not to remove the matched tuple
+     * @param claimed Whether or not a segment already claimed a match
+     * @param currentTime The time the leasing of the tuple is checked against
+     * @return The matched tuple or none if there's no relevant tuple matching or it was too late
+     */
+    private Optional<ITuple> claimTupleAt(int position, ITuple tuple, boolean remove, AtomicBoolean claimed,
+                                          long currentTime) {
+        Optional<ITuple> existingTuple = this.tuples.get(position);
+        if (!existingTuple.isPresent() || !isTupleRelevant(existingTuple.get(), currentTime)) {
+            return Optional.empty();
+        }
+
+        Optional<ITuple> result = existingTuple.get().match(tuple);
+        if (!result.isPresent()) {
+            return result;
+        } else if (!remove) {
+            return claimed.compareAndSet(false, true) ? result : Optional.empty();
+        }
+
+        synchronized (this.editBlock) {
+            if (claimed.get() || this.tuples.get(position).orElse(null) != existingTuple.get()) {
+                return Optional.empty();
+            }
+            clearPosition(position, existingTuple.get(), true);
+            this.removedTuples.increment();
+            claimed.set(true);
         }
         return result;
     }
@@ -320,25 +1223,26 @@ public class TupleSpace implements ITupleSpace {
     /**
      * Determines if the given tuple is still relevant regarding its leasing time
      * @param tuple The tuple to validate
+     * @param currentTime The current time as given by the coarse clock
      * @return true if the tuple is still relevant, otherwise true
      */
-    private boolean isTupleRelevant(ITuple tuple) {
-        long currentTime = System.currentTimeMillis();
+    private boolean isTupleRelevant(ITuple tuple, long currentTime) {
         return tuple.leasing() >= currentTime;
     }
 
     /**
-     * Try to remove the tuple at the given position from the container,
+     * Try to remove the given tuple at the given position from the container,
      * in case it was already removed by other process return false
      * @param position The position of the tuple to remove
-     * @return True or false depending on if the tuple was removed or already empty
+     * @param expected The tuple expected at the position
+     * @return True or false depending on if the tuple was removed or already gone
      */
-    private boolean tryRemovingTuple(int position) {
+    private boolean tryRemovingTuple(int position, ITuple expected) {
         synchronized (this.editBlock) {
             Optional<ITuple> tuple = this.tuples.get(position);
-            if (tuple.isPresent()) {
-                routing.remove(tuple.get());
-                this.tuples.set(position, Optional.empty());
+            if (tuple.isPresent() && tuple.get() == expected) {
+                clearPosition(position, expected, true);
+                this.removedTuples.increment();
                 return true;
             } else {
                 return false;
@@ -346,4 +1250,72 @@ public class TupleSpace implements ITupleSpace {
         }
     }
 
+    /**
+     * Empty the given position of the container holding the given tuple,
+     * removing it from the indexes & routing, callers must hold the edit lock.
+     * Consumed tuples leave a tombstone in routing so other nodes purge them too,
+     * evicted & purged ones are just forgotten
+     * @param position The position to empty
+     * @param tuple The tuple held at the position
+     * @param consumed Whether or not the tuple was consumed by in
+     */
+    private void clearPosition(int position, ITuple tuple, boolean consumed) {
+        if (consumed) {
+            this.routing.consume(tuple);
+        } else {
+            this.routing.remove(tuple);
+        }
+        this.tuples.set(position, Optional.empty());
+        this.leases.remove(position);
+        if (this.index != null) {
+            this.index.remove(tuple, position);
+        }
+        this.tuplesSize--;
+    }
+
+    /**
+     * In or read call waiting for an insertion to hand it a matching tuple
+     */
+    private static class Waiter {
+
+        private final ITuple template;
+
+        private final boolean remove;
+
+        private final long arrival;
+
+        private final Thread caller;
+
+        private volatile ITuple result;
+
+        Waiter(ITuple template, boolean remove, long arrival) {
+            this.template = template;
+            this.remove = remove;
+            this.arrival = arrival;
+            this.caller = Thread.currentThread();
+        }
+
+    }
+
+    /**
+     * Out call waiting for its tuples to be inserted by a batch
+     */
+    private static class PendingOut {
+
+        private final ITuple[] tuples;
+
+        private final boolean addRouting;
+
+        private final Thread caller;
+
+        private volatile boolean done;
+
+        PendingOut(ITuple[] tuples, boolean addRouting) {
+            this.tuples = tuples;
+            this.addRouting = addRouting;
+            this.caller = Thread.currentThread();
+        }
+
+    }
+
 }
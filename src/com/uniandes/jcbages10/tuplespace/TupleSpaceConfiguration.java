@@ -0,0 +1,400 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import com.uniandes.jcbages10.routing.EpidemicStrategy;
+import com.uniandes.jcbages10.routing.IRoutingStrategy;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+public class TupleSpaceConfiguration {
+
+    /**
+     * Default tuples container fixed size (1M)
+     */
+    public final static int DEFAULT_CAPACITY = 1000000;
+
+    /**
+     * Default thread pool fixed size, determines max number of unresolved calls to TS
+     */
+    public final static int DEFAULT_MAX_CALLS = 50;
+
+    /**
+     * Default size in bytes from which messages are deflated when exchanged (512B)
+     */
+    public final static int DEFAULT_COMPRESSION_THRESHOLD = 512;
+
+    /**
+     * Default number of threads scanning the container, 1 scans on the calling thread
+     */
+    public final static int DEFAULT_SCAN_PARALLELISM = 1;
+
+    /**
+     * Default max size in bytes of a message received from other nodes (16MB)
+     */
+    public final static int DEFAULT_MAX_MESSAGE_SIZE = 16777216;
+
+    /**
+     * Size of the tuples container
+     */
+    private int capacity;
+
+    /**
+     * Size of the thread pool, that is, max number of unresolved calls
+     */
+    private int maxCalls;
+
+    /**
+     * Map from signature, field types in order -> positions of its fields kept in sorted indexes
+     */
+    private Map<List<Class<?>>, Set<Integer>> indexedFields;
+
+    /**
+     * Whether or not unresolved in & read calls are queried to other nodes
+     */
+    private boolean distributedRead;
+
+    /**
+     * Factory of the routing strategy of each TS, strategies hold per node state
+     */
+    private Supplier<IRoutingStrategy<ITuple>> routingStrategy;
+
+    /**
+     * Whether or not large messages are deflated when exchanged with nodes accepting it
+     */
+    private boolean compression;
+
+    /**
+     * Size in bytes from which messages are deflated
+     */
+    private int compressionThreshold;
+
+    /**
+     * Number of threads scanning the container for templates the indexes can't look up
+     */
+    private int scanParallelism;
+
+    /**
+     * Directory of the on-disk store of the routing, none if messages are only kept in memory
+     */
+    private Path storeDirectory;
+
+    /**
+     * Whether or not records of the on-disk store are forced to the storage device as written
+     */
+    private boolean storeSync;
+
+    /**
+     * Max size in bytes of a message received from other nodes
+     */
+    private int maxMessageSize;
+
+    /**
+     * Constructor for initializing a configuration with the default values
+     */
+    public TupleSpaceConfiguration() {
+        this.capacity = DEFAULT_CAPACITY;
+        this.maxCalls = DEFAULT_MAX_CALLS;
+        this.indexedFields = Collections.emptyMap();
+        this.distributedRead = false;
+        this.routingStrategy = EpidemicStrategy::new;
+        this.compression = true;
+        this.compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+        this.scanParallelism = DEFAULT_SCAN_PARALLELISM;
+        this.storeSync = false;
+        this.maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+    }
+
+    /**
+     * Internal constructor for copying a given configuration
+     * @param configuration The configuration to copy
+     */
+    private TupleSpaceConfiguration(TupleSpaceConfiguration configuration) {
+        this.capacity = configuration.capacity;
+        this.maxCalls = configuration.maxCalls;
+        this.indexedFields = configuration.indexedFields;
+        this.distributedRead = configuration.distributedRead;
+        this.routingStrategy = configuration.routingStrategy;
+        this.compression = configuration.compression;
+        this.compressionThreshold = configuration.compressionThreshold;
+        this.scanParallelism = configuration.scanParallelism;
+        this.storeDirectory = configuration.storeDirectory;
+        this.storeSync = configuration.storeSync;
+        this.maxMessageSize = configuration.maxMessageSize;
+    }
+
+    /**
+     * Return a copy of this configuration with the given capacity
+     * @param capacity The size of the tuples container
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.capacity = capacity;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with the given max number of calls
+     * @param maxCalls The size of the thread pool
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withMaxCalls(int maxCalls) {
+        if (maxCalls <= 0) {
+            throw new IllegalArgumentException("Max calls must be positive");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.maxCalls = maxCalls;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration also keeping a sorted index of the field at the
+     * given position of the tuples of the given signature. Templates of the signature with
+     * an actual or range field there are served without scanning the whole container, at the
+     * cost of an entry per tuple & slower insertions, so only fields looked up often should
+     * be indexed. No field is indexed by default. The type of the field must be comparable
+     * & final, e.g. Integer, String or an enum
+     * @param position The position of the field to index
+     * @param types The types of the fields of the signature, in order
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withIndexedField(int position, Class<?>... types) {
+        List<Class<?>> signature = Arrays.asList(types.clone());
+        if (signature.contains(null)) {
+            throw new IllegalArgumentException("Indexed signature types can't be null");
+        }
+        if (position < 0 || position >= signature.size()) {
+            throw new IllegalArgumentException("Indexed position out of the signature");
+        }
+        if (!TupleIndex.isIndexable(signature.get(position))) {
+            throw new IllegalArgumentException("Indexed field type must be comparable & final");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        Map<List<Class<?>>, Set<Integer>> indexedFields = new HashMap<>(this.indexedFields);
+        Set<Integer> positions = new TreeSet<>(indexedFields.getOrDefault(signature, Collections.emptySet()));
+        positions.add(position);
+        indexedFields.put(signature, Collections.unmodifiableSet(positions));
+        configuration.indexedFields = Collections.unmodifiableMap(indexedFields);
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with distributed read enabled or disabled,
+     * in & read calls without a local match issue a query through routing so
+     * nodes holding a match send it in the next exchanges
+     * @param distributedRead Whether or not unresolved calls are queried to other nodes
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withDistributedRead(boolean distributedRead) {
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.distributedRead = distributedRead;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with the given routing strategy,
+     * epidemic by default, spray and wait & PRoPHET replicate far less messages
+     * @param routingStrategy The factory of the routing strategy of each TS
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withRoutingStrategy(Supplier<IRoutingStrategy<ITuple>> routingStrategy) {
+        if (routingStrategy == null) {
+            throw new IllegalArgumentException("Routing strategy can't be null");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.routingStrategy = routingStrategy;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with compression enabled or disabled,
+     * messages exchanged through sendEncodedMessages() at least as large as the
+     * threshold are deflated with a dictionary trained on recent messages,
+     * only for nodes accepting it
+     * @param compression Whether or not large messages are deflated
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withCompression(boolean compression) {
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.compression = compression;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with the given compression threshold
+     * @param compressionThreshold The size in bytes from which messages are deflated
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("Compression threshold can't be negative");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.compressionThreshold = compressionThreshold;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with the given scan parallelism, templates
+     * the indexes can't look up, e.g. all formal, scan the container in segments on a
+     * fork join pool of this size that stop as soon as a match is claimed, the same
+     * goes for readAll & count. Runtime.availableProcessors() suits large containers
+     * @param scanParallelism The number of threads scanning the container
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withScanParallelism(int scanParallelism) {
+        if (scanParallelism <= 0) {
+            throw new IllegalArgumentException("Scan parallelism must be positive");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.scanParallelism = scanParallelism;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration keeping the carried messages of the routing
+     * in an append-only log within the given directory, compacted as it grows. A TS
+     * created again with the same directory gets back its host ID, its messages with
+     * their hop counts & copies, and its tombstones without exchanging with neighbours.
+     * Records are written but not synced on every change unless enabled through
+     * withStoreSync(), so they survive process crashes but power losses may drop
+     * the last ones. Every TS needs its own directory
+     * @param storeDirectory The directory of the store, null to keep messages only in memory
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withStoreDirectory(Path storeDirectory) {
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.storeDirectory = storeDirectory;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with syncing of the on-disk store enabled or
+     * disabled, changes of the carried messages are forced to the storage device by a
+     * background thread right after being written, the ones written meanwhile in a single
+     * sync, so power losses only drop the changes of the last few milliseconds & the
+     * routing never waits for the storage device
+     * @param storeSync Whether or not records of the store are forced to the storage device
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withStoreSync(boolean storeSync) {
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.storeSync = storeSync;
+        return configuration;
+    }
+
+    /**
+     * Return a copy of this configuration with the given max message size, encoded
+     * tuples announced larger than this by other nodes are rejected before allocating
+     * them, whether they arrive whole, deflated or in chunks
+     * @param maxMessageSize The max size in bytes of a received message
+     * @return The new configuration
+     */
+    public TupleSpaceConfiguration withMaxMessageSize(int maxMessageSize) {
+        if (maxMessageSize <= 0) {
+            throw new IllegalArgumentException("Max message size must be positive");
+        }
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration(this);
+        configuration.maxMessageSize = maxMessageSize;
+        return configuration;
+    }
+
+    /**
+     * Return the size of the tuples container
+     * @return The size of the tuples container
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Return the max number of unresolved calls
+     * @return The max number of unresolved calls
+     */
+    public int maxCalls() {
+        return this.maxCalls;
+    }
+
+    /**
+     * Return the positions of the fields kept in sorted indexes by signature
+     * @return The indexed fields, empty if indexes are disabled
+     */
+    public Map<List<Class<?>>, Set<Integer>> indexedFields() {
+        return this.indexedFields;
+    }
+
+    /**
+     * Return whether or not unresolved in & read calls are queried to other nodes
+     * @return True if distributed read is enabled
+     */
+    public boolean isDistributedRead() {
+        return this.distributedRead;
+    }
+
+    /**
+     * Return the factory of the routing strategy of each TS
+     * @return The routing strategy factory
+     */
+    public Supplier<IRoutingStrategy<ITuple>> routingStrategy() {
+        return this.routingStrategy;
+    }
+
+    /**
+     * Return whether or not large messages are deflated when exchanged
+     * @return True if compression is enabled
+     */
+    public boolean isCompression() {
+        return this.compression;
+    }
+
+    /**
+     * Return the size in bytes from which messages are deflated
+     * @return The compression threshold
+     */
+    public int compressionThreshold() {
+        return this.compressionThreshold;
+    }
+
+    /**
+     * Return the number of threads scanning the container
+     * @return The scan parallelism
+     */
+    public int scanParallelism() {
+        return this.scanParallelism;
+    }
+
+    /**
+     * Return the directory of the on-disk store of the routing
+     * @return The store directory or null if disabled
+     */
+    public Path storeDirectory() {
+        return this.storeDirectory;
+    }
+
+    /**
+     * Return whether or not records of the on-disk store are forced to the storage device
+     * @return True if store sync is enabled
+     */
+    public boolean isStoreSync() {
+        return this.storeSync;
+    }
+
+    /**
+     * Return the max size in bytes of a message received from other nodes
+     * @return The max message size
+     */
+    public int maxMessageSize() {
+        return this.maxMessageSize;
+    }
+
+}
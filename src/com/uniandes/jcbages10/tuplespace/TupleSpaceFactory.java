@@ -0,0 +1,81 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TupleSpaceFactory {
+
+    /**
+     * Name of the default TS, the one returned by TupleSpace.getInstance()
+     */
+    public final static String DEFAULT_NAME = "default";
+
+    /**
+     * Map from TS name -> TS
+     */
+    private final static Map<String, ITupleSpace> spaces = new ConcurrentHashMap<>();
+
+    /**
+     * Non instantiable factory
+     */
+    private TupleSpaceFactory() {
+    }
+
+    /**
+     * Create a new TS with the given name & configuration
+     * @param name The name of the TS
+     * @param configuration The configuration of the TS
+     * @return The created TS
+     */
+    public static synchronized ITupleSpace create(String name, TupleSpaceConfiguration configuration) {
+        if (spaces.containsKey(name)) {
+            throw new IllegalArgumentException("A tuple space named " + name + " already exists");
+        }
+        ITupleSpace tupleSpace = new TupleSpace(name, configuration);
+        spaces.put(name, tupleSpace);
+        return tupleSpace;
+    }
+
+    /**
+     * Return the TS with the given name, creating it
+     * with the default configuration if it doesn't exist
+     * @param name The name of the TS
+     * @return The TS with the given name
+     */
+    public static synchronized ITupleSpace getOrCreate(String name) {
+        if (!spaces.containsKey(name)) {
+            return create(name, new TupleSpaceConfiguration());
+        }
+        return spaces.get(name);
+    }
+
+    /**
+     * Return the TS with the given name if it exists
+     * @param name The name of the TS
+     * @return The TS with the given name or none
+     */
+    public static Optional<ITupleSpace> get(String name) {
+        return Optional.ofNullable(spaces.get(name));
+    }
+
+    /**
+     * Return the default TS, creating it if necessary
+     * @return The default TS
+     */
+    public static ITupleSpace getDefault() {
+        return getOrCreate(DEFAULT_NAME);
+    }
+
+    /**
+     * Shutdown & forget the TS with the given name
+     * @param name The name of the TS to destroy
+     */
+    public static synchronized void destroy(String name) {
+        ITupleSpace tupleSpace = spaces.remove(name);
+        if (tupleSpace != null) {
+            tupleSpace.shutdown();
+        }
+    }
+
+}
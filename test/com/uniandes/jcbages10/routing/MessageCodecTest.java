@@ -0,0 +1,82 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.tuplespace.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    /**
+     * Messages keep their id, hop count, copies, leasing & every field,
+     * formal, null & blob ones included
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void roundTripsMessages() {
+        ITuple tuple = new Tuple(123456789L,
+            Field.of(String.class, "text ñ"), Field.of(Integer.class, 42), Field.of(Long.class, 1L << 40),
+            Field.of(Double.class, 0.5), Field.of(Float.class, 1.5f), Field.of(Short.class, (short) 7),
+            Field.of(Byte.class, (byte) -1), Field.of(Boolean.class, true), Field.of(Character.class, 'x'),
+            Field.of(TimeUnit.class, TimeUnit.SECONDS), Field.of(Integer.class), Field.of(String.class, null),
+            Field.of(byte[].class, new byte[] { 1, 2, 3 }), new BlobField(ByteBuffer.wrap(new byte[] { 4, 5 })));
+        IMessage<ITuple> message = new Message<>(UUID.randomUUID(), tuple, 3, 8);
+
+        IMessage<ITuple> decoded = MessageCodec.decode(MessageCodec.encode(message));
+        assertEquals(message.id(), decoded.id());
+        assertEquals(3, decoded.hopCount());
+        assertEquals(8, decoded.copies());
+        ITuple decodedTuple = decoded.element();
+        assertEquals(123456789L, decodedTuple.leasing());
+        assertSame(tuple.signature(), decodedTuple.signature());
+        for (int i = 0; i < 11; i++) {
+            assertEquals(tuple.get(i), decodedTuple.get(i), "field " + i);
+        }
+        assertTrue(decodedTuple.get(11).isActual());
+        assertNull(decodedTuple.get(11).element());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decodedTuple.get(12).element());
+        assertTrue(decodedTuple.get(13) instanceof BlobField);
+        assertEquals(ByteBuffer.wrap(new byte[] { 4, 5 }), decodedTuple.get(13).element());
+    }
+
+    /**
+     * Tuples encode the same on every node & decode to equal fields
+     */
+    @Test
+    void roundTripsTuples() {
+        ITuple tuple = new Tuple(Long.MAX_VALUE, Field.of(String.class, "a"), Field.of(Integer.class, 1));
+        byte[] encoded = MessageCodec.encodeTuple(tuple);
+
+        assertArrayEquals(encoded, MessageCodec.encodeTuple(MessageCodec.decodeTuple(encoded)));
+        assertTrue(MessageCodec.decodeTuple(encoded).match(tuple).isPresent());
+    }
+
+    /**
+     * Truncated bytes, lengths past the end, elements out of their field type
+     * & serialized classes not allowed by the filter are rejected
+     */
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void rejectsMalformedTuples() {
+        byte[] encoded = MessageCodec.encodeTuple(
+            new Tuple(Long.MAX_VALUE, Field.of(String.class, "abcdef"), Field.of(Integer.class, 1)));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 2);
+        byte[] tooLong = encoded.clone();
+        tooLong[8] = 0x7f;
+        byte[] mistyped = MessageCodec.encodeTuple(new Tuple(Long.MAX_VALUE, new Field(Integer.class, "not an integer")));
+        byte[] serialized = MessageCodec.encodeTuple(new Tuple(Long.MAX_VALUE, Field.of(ArrayList.class, new ArrayList<>())));
+
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decodeTuple(truncated));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decodeTuple(tooLong));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decodeTuple(mistyped));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decodeTuple(serialized));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decode(new byte[] { 1, 2, 3 }));
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.tuplespace.Field;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+import com.uniandes.jcbages10.tuplespace.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageStoreTest {
+
+    /**
+     * Name of the log within the store directory
+     */
+    private final static String LOG_FILE = "messages.log";
+
+    /**
+     * Directory of the store under test, deleted after every test
+     */
+    private Path directory;
+
+    /**
+     * Metrics of the store under test
+     */
+    private MetricsRegistry metrics;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("message-store-test");
+        this.metrics = new MetricsRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Messages, their latest hop counts & copies, deletions & tombstones survive a reopen
+     */
+    @Test
+    void replaysMessagesAndTombstones() {
+        IMessage<ITuple> kept = message(1);
+        IMessage<ITuple> deleted = message(2);
+        IMessage<ITuple> consumed = message(3);
+        long tombstone = System.currentTimeMillis() + 60000;
+
+        MessageStore store = open();
+        store.put(List.of(kept, deleted, consumed));
+        store.put(List.of(new Message<>(kept.id(), kept.element(), 3, 2)));
+        store.delete(deleted.id(), 0);
+        store.delete(consumed.id(), tombstone);
+        store.close();
+
+        store = open();
+        List<IMessage<ITuple>> messages = store.messages();
+        assertEquals(1, messages.size());
+        assertEquals(kept.id(), messages.get(0).id());
+        assertEquals(1, messages.get(0).element().get(0).element());
+        assertEquals(3, messages.get(0).hopCount());
+        assertEquals(2, messages.get(0).copies());
+        assertEquals(Map.of(consumed.id(), tombstone), store.tombstones(System.currentTimeMillis()));
+        store.close();
+    }
+
+    /**
+     * A record torn by a crash while appending is cut off, the ones before it are kept
+     * and new records are appended right after them
+     */
+    @Test
+    void cutsOffATornLastRecord() throws IOException {
+        MessageStore store = open();
+        store.put(List.of(message(1), message(2)));
+        store.close();
+        long size = Files.size(this.directory.resolve(LOG_FILE));
+        Files.write(this.directory.resolve(LOG_FILE), new byte[] { 0, 0, 0, 50, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        store = open();
+        assertEquals(2, store.messages().size());
+        assertEquals(size, Files.size(this.directory.resolve(LOG_FILE)));
+        store.put(List.of(message(3)));
+        store.close();
+
+        store = open();
+        assertEquals(List.of(1, 2, 3), elements(store.messages()));
+        store.close();
+    }
+
+    /**
+     * Replay stops at the first record whose checksum doesn't match
+     */
+    @Test
+    void stopsAtACorruptedRecord() throws IOException {
+        MessageStore store = open();
+        store.put(List.of(message(1)));
+        store.put(List.of(message(2)));
+        store.close();
+        byte[] log = Files.readAllBytes(this.directory.resolve(LOG_FILE));
+        log[log.length - 6] ^= 0xff;
+        Files.write(this.directory.resolve(LOG_FILE), log);
+
+        store = open();
+        assertEquals(List.of(1), elements(store.messages()));
+        store.close();
+    }
+
+    /**
+     * Logs mostly made of deleted records are compacted in the background while records
+     * keep being appended, keeping the carried messages & the ones stored meanwhile
+     */
+    @Test
+    void compactsDeletedRecords() throws IOException {
+        MessageStore store = open();
+        IMessage<ITuple> kept = message(-1);
+        store.put(List.of(kept));
+        List<Object> carried = new ArrayList<>(List.of(-1));
+        for (int i = 0; i < 20000; i++) {
+            IMessage<ITuple> message = message(i);
+            store.put(List.of(message));
+            if (i % 1000 == 0) {
+                carried.add(i);
+            } else {
+                store.delete(message.id(), 0);
+            }
+        }
+        assertEquals(carried, elements(store.messages()));
+        store.close();
+        assertTrue(this.metrics.snapshot().get("routing.store.compactions") > 0);
+        assertEquals(0L, this.metrics.snapshot().get("routing.store.compactions.failed").longValue());
+        assertTrue(Files.size(this.directory.resolve(LOG_FILE)) < 20000L * 2 * 37);
+
+        store = open();
+        assertEquals(kept.id(), store.messages().get(0).id());
+        assertEquals(carried, elements(store.messages()));
+        store.close();
+    }
+
+    /**
+     * The host ID stored the first time is returned on every reopen
+     */
+    @Test
+    void keepsTheHostId() {
+        UUID id = UUID.randomUUID();
+        MessageStore store = open();
+        assertEquals(id, store.hostId(id));
+        store.close();
+
+        store = open();
+        assertEquals(id, store.hostId(UUID.randomUUID()));
+        store.close();
+    }
+
+    /**
+     * Open the store of the test directory
+     * @return The store
+     */
+    private MessageStore open() {
+        return new MessageStore(this.directory, false, this.metrics);
+    }
+
+    /**
+     * Build a message of an (Integer, String) tuple that doesn't expire
+     * @param i The integer of the tuple
+     * @return The message
+     */
+    private static IMessage<ITuple> message(int i) {
+        return new Message<>(UUID.randomUUID(),
+            new Tuple(Long.MAX_VALUE, Field.of(Integer.class, i), Field.of(String.class, "message-" + i)), 5, 4);
+    }
+
+    /**
+     * Return the integers of the tuples of the given messages, in order
+     * @param messages The messages
+     * @return The integers
+     */
+    private static List<Object> elements(List<IMessage<ITuple>> messages) {
+        List<Object> elements = new ArrayList<>();
+        for (IMessage<ITuple> message : messages) {
+            elements.add(message.element().get(0).element());
+        }
+        return elements;
+    }
+
+}
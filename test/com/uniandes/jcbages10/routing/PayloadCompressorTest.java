@@ -0,0 +1,121 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.metrics.MetricsRegistry;
+import com.uniandes.jcbages10.tuplespace.Field;
+import com.uniandes.jcbages10.tuplespace.ITuple;
+import com.uniandes.jcbages10.tuplespace.Tuple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadCompressorTest {
+
+    /**
+     * Threshold of the compressors under test, in bytes
+     */
+    private final static int THRESHOLD = 512;
+
+    /**
+     * Max message size of the compressors under test, in bytes
+     */
+    private final static int MAX_MESSAGE_SIZE = 1 << 16;
+
+    /**
+     * Small & large messages are decoded as they were encoded, large ones deflated
+     */
+    @Test
+    void roundTripsPayloads() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        PayloadCompressor sender = new PayloadCompressor(true, THRESHOLD, MAX_MESSAGE_SIZE, metrics);
+        PayloadCompressor receiver = compressor(true);
+        List<IMessage<ITuple>> messages = List.of(message("small"), message("large ".repeat(500)));
+
+        List<IMessage<ITuple>> decoded = receiver.decode(sender.encode(messages, receiver.offer()));
+        assertEquals(2, decoded.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(messages.get(i).id(), decoded.get(i).id());
+            assertEquals(messages.get(i).element().get(0), decoded.get(i).element().get(0));
+        }
+        assertTrue(metrics.snapshot().get("routing.bytes.encoded") < metrics.snapshot().get("routing.bytes.raw") / 4);
+    }
+
+    /**
+     * Nodes that don't accept deflate get every message raw
+     */
+    @Test
+    void sendsRawMessagesToNodesWithoutDeflate() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        PayloadCompressor sender = new PayloadCompressor(true, THRESHOLD, MAX_MESSAGE_SIZE, metrics);
+        PayloadCompressor receiver = compressor(false);
+        IMessage<ITuple> message = message("large ".repeat(500));
+
+        List<IMessage<ITuple>> decoded = receiver.decode(sender.encode(List.of(message), receiver.offer()));
+        assertEquals(message.element().get(0), decoded.get(0).element().get(0));
+        assertTrue(metrics.snapshot().get("routing.bytes.encoded") > metrics.snapshot().get("routing.bytes.raw"));
+    }
+
+    /**
+     * A trained dictionary is sent once along with the payload, nodes holding it
+     * get later payloads without it
+     */
+    @Test
+    void sendsTheDictionaryOnce() {
+        PayloadCompressor sender = compressor(true);
+        PayloadCompressor receiver = compressor(true);
+        List<IMessage<ITuple>> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(message("{\"sensor\": " + i + ", \"reading\": \"" + "value ".repeat(100) + "\"}"));
+        }
+        sender.encode(messages, new CompressionOffer(true, Set.of()));
+        assertTrue(receiver.offer().dictionaries().isEmpty());
+
+        byte[] withDictionary = sender.encode(messages.subList(0, 1), receiver.offer());
+        receiver.decode(withDictionary);
+        Set<Integer> dictionaries = receiver.offer().dictionaries();
+        assertEquals(1, dictionaries.size());
+        byte[] withoutDictionary = sender.encode(messages.subList(0, 1), receiver.offer());
+        assertTrue(withoutDictionary.length < withDictionary.length);
+        assertEquals(messages.get(0).id(), receiver.decode(withoutDictionary).get(0).id());
+    }
+
+    /**
+     * Messages larger than the max message size, unknown versions & truncated payloads are rejected
+     */
+    @Test
+    void rejectsMalformedPayloads() {
+        PayloadCompressor sender = compressor(true);
+        PayloadCompressor receiver = new PayloadCompressor(true, THRESHOLD, 1024, new MetricsRegistry());
+        byte[] oversized = sender.encode(List.of(message("x".repeat(4096))), receiver.offer());
+        byte[] payload = sender.encode(List.of(message("small")), receiver.offer());
+        byte[] unknownVersion = payload.clone();
+        unknownVersion[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> receiver.decode(oversized));
+        assertThrows(IllegalArgumentException.class, () -> receiver.decode(unknownVersion));
+        assertThrows(IllegalArgumentException.class, () -> receiver.decode(new byte[] { 1 }));
+    }
+
+    /**
+     * Build a compressor with the default threshold & max message size
+     * @param enabled Whether or not messages are deflated
+     * @return The compressor
+     */
+    private static PayloadCompressor compressor(boolean enabled) {
+        return new PayloadCompressor(enabled, THRESHOLD, MAX_MESSAGE_SIZE, new MetricsRegistry());
+    }
+
+    /**
+     * Build a message of a (String) tuple that doesn't expire
+     * @param s The string of the tuple
+     * @return The message
+     */
+    private static IMessage<ITuple> message(String s) {
+        return new Message<>(UUID.randomUUID(), new Tuple(Long.MAX_VALUE, Field.of(String.class, s)), 5, 1);
+    }
+
+}
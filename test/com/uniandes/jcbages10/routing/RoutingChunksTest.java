@@ -0,0 +1,100 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.tuplespace.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingChunksTest {
+
+    /**
+     * Template matching the (String, blob) tuple sent in chunks
+     */
+    private final static ITuple TEMPLATE = new Tuple(Field.of(String.class), Field.of(ByteBuffer.class));
+
+    /**
+     * The space sending the chunks
+     */
+    private ITupleSpace sender;
+
+    /**
+     * The space receiving the chunks
+     */
+    private ITupleSpace receiver;
+
+    @BeforeEach
+    void setUp() {
+        this.sender = TupleSpaceFactory.create("chunks-sender", new TupleSpaceConfiguration().withCapacity(100));
+        this.receiver = TupleSpaceFactory.create("chunks-receiver",
+            new TupleSpaceConfiguration().withCapacity(100).withMaxMessageSize(1 << 20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TupleSpaceFactory.destroy("chunks-sender");
+        TupleSpaceFactory.destroy("chunks-receiver");
+    }
+
+    /**
+     * A message larger than an exchange is resumed from the received offset
+     * on the next one & added to the space once whole
+     */
+    @Test
+    void reassemblesATransferAcrossExchanges() {
+        byte[] blob = new byte[40000];
+        for (int i = 0; i < blob.length; i++) {
+            blob[i] = (byte) i;
+        }
+        this.sender.out(new Tuple(Long.MAX_VALUE, Field.of(String.class, "blob"), new BlobField(ByteBuffer.wrap(blob))));
+        IRouting<ITuple> routing = this.receiver.routing();
+        List<UUID> ids = this.sender.routing().messagesIds(routing.id());
+
+        routing.receiveChunks(this.sender.routing().sendChunks(routing.id(), routing.transferOffsets(ids), 20000));
+        assertEquals(0, this.receiver.count(TEMPLATE));
+        int offset = routing.transferOffsets(ids).get(ids.get(0));
+        assertTrue(offset > 0 && offset < blob.length, "offset " + offset);
+        assertEquals(1L, metric("routing.transfers"));
+
+        routing.receiveChunks(this.sender.routing().sendChunks(routing.id(), routing.transferOffsets(ids), 100000));
+        assertEquals(1, this.receiver.count(TEMPLATE));
+        assertEquals(0L, metric("routing.transfers"));
+        ITuple received = this.receiver.routing().sendMessages(List.of(ids.get(0))).get(0).element();
+        ByteBuffer data = (ByteBuffer) received.get(1).element();
+        assertEquals(ByteBuffer.wrap(blob), data);
+    }
+
+    /**
+     * Chunks with negative or too large lengths, or data out of their length, are rejected
+     * without starting a transfer
+     */
+    @Test
+    void rejectsMalformedChunks() {
+        UUID id = UUID.randomUUID();
+        this.receiver.routing().receiveChunks(List.of(
+            new Chunk(id, 1, 1, 0, -5, 0, ByteBuffer.allocate(4)),
+            new Chunk(id, 1, 1, 0, Integer.MAX_VALUE, 0, ByteBuffer.allocate(4)),
+            new Chunk(id, 1, 1, 0, 4, 0, ByteBuffer.allocate(10)),
+            new Chunk(id, 1, 1, Integer.MAX_VALUE - 1, 4, 0, ByteBuffer.allocate(10))));
+
+        assertEquals(4L, metric("routing.chunks.rejected"));
+        assertEquals(0L, metric("routing.transfers"));
+        assertEquals(Map.of(id, 0), this.receiver.routing().transferOffsets(List.of(id)));
+    }
+
+    /**
+     * Return the current value of the given metric of the receiver
+     * @param name The name of the metric
+     * @return The value of the metric
+     */
+    private long metric(String name) {
+        return this.receiver.metrics().snapshot().get(name);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.uniandes.jcbages10.routing;
+
+import com.uniandes.jcbages10.tuplespace.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingTombstonesTest {
+
+    /**
+     * Template matching every (Integer) tuple
+     */
+    private final static ITuple TEMPLATE = new Tuple(Field.of(Integer.class));
+
+    /**
+     * The space consuming the tuples
+     */
+    private ITupleSpace consumer;
+
+    /**
+     * The space holding copies of the consumed tuples
+     */
+    private ITupleSpace peer;
+
+    @BeforeEach
+    void setUp() {
+        this.consumer = TupleSpaceFactory.create("tombstones-consumer", new TupleSpaceConfiguration().withCapacity(100));
+        this.peer = TupleSpaceFactory.create("tombstones-peer", new TupleSpaceConfiguration().withCapacity(100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TupleSpaceFactory.destroy("tombstones-consumer");
+        TupleSpaceFactory.destroy("tombstones-peer");
+    }
+
+    /**
+     * Tuples consumed before being offered to any host leave no tombstone
+     */
+    @Test
+    void leavesNoTombstoneOfLocalMessages() throws Exception {
+        this.consumer.out(tuple(1));
+        this.consumer.in(TEMPLATE).get();
+
+        assertTrue(this.consumer.routing().tombstones().isEmpty());
+    }
+
+    /**
+     * Consuming a shared tuple purges its copy on the peer once the tombstone is
+     * exchanged, and tombstones already sent to a host aren't sent again
+     */
+    @Test
+    void purgesConsumedCopiesOnPeers() throws Exception {
+        IRouting<ITuple> consumerRouting = this.consumer.routing();
+        IRouting<ITuple> peerRouting = this.peer.routing();
+        this.consumer.out(tuple(2));
+        peerRouting.receiveMessages(consumerRouting.sendMessages(peerRouting.id(),
+            peerRouting.requestMessages(consumerRouting.messagesIds(peerRouting.id()))));
+        assertEquals(1, this.peer.count(TEMPLATE));
+
+        this.consumer.in(TEMPLATE).get();
+        Map<UUID, Long> tombstones = consumerRouting.tombstones(peerRouting.id());
+        assertEquals(1, tombstones.size());
+        assertTrue(consumerRouting.tombstones(peerRouting.id()).isEmpty());
+        assertEquals(tombstones, consumerRouting.tombstones(UUID.randomUUID()));
+
+        peerRouting.receiveTombstones(tombstones);
+        assertEquals(0, this.peer.count(TEMPLATE));
+        assertTrue(peerRouting.messagesIds().isEmpty());
+        assertEquals(tombstones.keySet(), peerRouting.tombstones().keySet());
+    }
+
+    /**
+     * Tuples handed by routing whose message was consumed by a tombstone before
+     * reaching the space aren't inserted, their purge already happened
+     */
+    @Test
+    void skipsTuplesConsumedBeforeReachingTheSpace() throws Exception {
+        IRouting<ITuple> consumerRouting = this.consumer.routing();
+        IRouting<ITuple> peerRouting = this.peer.routing();
+        this.consumer.out(tuple(3));
+        List<IMessage<ITuple>> messages = consumerRouting.sendMessages(peerRouting.id(),
+            peerRouting.requestMessages(consumerRouting.messagesIds(peerRouting.id())));
+        this.consumer.in(TEMPLATE).get();
+        peerRouting.receiveTombstones(consumerRouting.tombstones(peerRouting.id()));
+
+        this.peer.outRouting(messages.get(0).element());
+        assertEquals(0, this.peer.count(TEMPLATE));
+        assertFalse(peerRouting.carries(messages.get(0).element()));
+    }
+
+    /**
+     * Build an (Integer) tuple that doesn't expire
+     * @param i The element of the tuple
+     * @return The tuple
+     */
+    private static ITuple tuple(int i) {
+        return new Tuple(Long.MAX_VALUE, Field.of(Integer.class, i));
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicOperationsTest {
+
+    /**
+     * Max time in milliseconds to wait for calls to be resolved
+     */
+    private final static long TIMEOUT = 5000;
+
+    /**
+     * Template matching the ("counter", Integer) tuple
+     */
+    private final static ITuple COUNTER = new Tuple(Field.of(String.class, "counter"), Field.of(Integer.class));
+
+    /**
+     * The space under test
+     */
+    private ITupleSpace tupleSpace;
+
+    @BeforeEach
+    void setUp() {
+        this.tupleSpace = TupleSpaceFactory.create("atomic-test",
+            new TupleSpaceConfiguration().withCapacity(100).withMaxCalls(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TupleSpaceFactory.destroy("atomic-test");
+    }
+
+    /**
+     * Concurrent updates of the same tuple never lose an increment
+     */
+    @Test
+    void appliesConcurrentUpdatesOneAtATime() throws Exception {
+        this.tupleSpace.out(counter(0));
+        List<Future<List<ITuple>>> calls = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            calls.add(this.tupleSpace.atomically(
+                Operation.update(COUNTER, tuple -> counter((Integer) tuple.get(1).element() + 1))));
+        }
+        for (Future<List<ITuple>> call : calls) {
+            call.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(40, this.tupleSpace.read(COUNTER).get(TIMEOUT, TimeUnit.MILLISECONDS).get(1).element());
+        assertEquals(1, this.tupleSpace.count(COUNTER));
+    }
+
+    /**
+     * Compare and swap only replaces the tuple holding the expected value
+     */
+    @Test
+    void swapsOnlyTheExpectedTuple() throws Exception {
+        this.tupleSpace.out(counter(1));
+        ITuple expected = new Tuple(Field.of(String.class, "counter"), Field.of(Integer.class, 1));
+
+        assertTrue(this.tupleSpace.compareAndSwap(expected, counter(2)));
+        assertFalse(this.tupleSpace.compareAndSwap(expected, counter(3)));
+        assertEquals(2, this.tupleSpace.read(COUNTER).get(TIMEOUT, TimeUnit.MILLISECONDS).get(1).element());
+        assertEquals(1, this.tupleSpace.count(COUNTER));
+    }
+
+    /**
+     * Steps are applied all at once when every template matches, never partially
+     */
+    @Test
+    void waitsUntilEveryStepCanBeApplied() throws Exception {
+        ITuple a = new Tuple(Field.of(String.class, "a"));
+        ITuple b = new Tuple(Field.of(String.class, "b"));
+        Future<List<ITuple>> call = this.tupleSpace.atomically(Operation.in(a), Operation.in(b));
+
+        this.tupleSpace.out(new Tuple(Long.MAX_VALUE, Field.of(String.class, "a")));
+        assertThrows(TimeoutException.class, () -> call.get(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, this.tupleSpace.count(a));
+
+        this.tupleSpace.out(new Tuple(Long.MAX_VALUE, Field.of(String.class, "b")));
+        List<ITuple> result = call.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertEquals("a", result.get(0).get(0).element());
+        assertEquals("b", result.get(1).get(0).element());
+        assertEquals(0, this.tupleSpace.count(a));
+        assertEquals(0, this.tupleSpace.count(b));
+    }
+
+    /**
+     * Interrupted calls give up instead of waiting forever & free their slot
+     */
+    @Test
+    void givesUpInterruptedCalls() throws Exception {
+        Future<List<ITuple>> call = this.tupleSpace.atomically(Operation.in(COUNTER));
+        Thread.sleep(50);
+
+        this.tupleSpace.shutdown();
+        ExecutionException exception = assertThrows(ExecutionException.class,
+            () -> call.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(exception.getCause() instanceof CancellationException);
+        assertEquals(0L, this.tupleSpace.metrics().snapshot().get("calls.unresolved").longValue());
+    }
+
+    /**
+     * Build a ("counter", value) tuple that doesn't expire
+     * @param value The value of the counter
+     * @return The tuple
+     */
+    private static ITuple counter(int value) {
+        return new Tuple(Long.MAX_VALUE, Field.of(String.class, "counter"), Field.of(Integer.class, value));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import com.uniandes.jcbages10.routing.MessageCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldInterningTest {
+
+    /**
+     * Formal fields & small Integer or short String elements get the same instance
+     * every time, other elements a new field
+     */
+    @Test
+    void sharesFrequentFields() {
+        assertSame(Field.of(Integer.class), Field.of(Integer.class));
+        assertSame(Field.of(Integer.class, 7), Field.of(Integer.class, 7));
+        assertSame(Field.of(Integer.class, -128), Field.of(Integer.class, -128));
+        assertSame(Field.of(String.class, "sensor"), Field.of(String.class, new String("sensor")));
+
+        assertNotSame(Field.of(Integer.class, 1024), Field.of(Integer.class, 1024));
+        assertNotSame(Field.of(String.class, "x".repeat(33)), Field.of(String.class, "x".repeat(33)));
+        assertNotSame(Field.of(Long.class, 7L), Field.of(Long.class, 7L));
+        assertNotSame(Field.of(Integer.class, null), Field.of(Integer.class, null));
+    }
+
+    /**
+     * Equal fields have equal hash codes whether they are shared or not
+     */
+    @Test
+    void hashesEqualFieldsAlike() {
+        assertEquals(new Field<>(Integer.class, 1024), Field.of(Integer.class, 1024));
+        assertEquals(new Field<>(Integer.class, 1024).hashCode(), Field.of(Integer.class, 1024).hashCode());
+        assertEquals(new Field<>(String.class, "a").hashCode(), Field.of(String.class, "a").hashCode());
+        assertEquals(new Field<>(Integer.class).hashCode(), new Field<>(String.class).hashCode());
+        assertEquals(new Field<>(Integer.class), new Field<>(String.class));
+        assertNotEquals(Field.of(Integer.class, 1), Field.of(Long.class, 1L));
+    }
+
+    /**
+     * Tuples of the same field types share their signature, decoded ones included,
+     * & decoded frequent values are the shared fields
+     */
+    @Test
+    void sharesSignaturesAndDecodedFields() {
+        ITuple tuple = new Tuple(Long.MAX_VALUE, Field.of(Integer.class, 3), Field.of(String.class, "a"));
+        ITuple decoded = MessageCodec.decodeTuple(MessageCodec.encodeTuple(tuple));
+
+        assertSame(Signature.of(Integer.class, String.class), tuple.signature());
+        assertSame(tuple.signature(), new Tuple(Field.of(Integer.class), Field.of(String.class)).signature());
+        assertSame(tuple.signature(), decoded.signature());
+        assertSame(tuple.get(0), decoded.get(0));
+        assertSame(tuple.get(1), decoded.get(1));
+        assertFalse(new Tuple(Field.of(Integer.class, 3)).match(tuple).isPresent());
+    }
+
+}
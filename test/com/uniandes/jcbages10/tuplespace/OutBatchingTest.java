@@ -0,0 +1,128 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutBatchingTest {
+
+    /**
+     * Max time in milliseconds to wait for calls to be resolved
+     */
+    private final static long TIMEOUT = 10000;
+
+    /**
+     * Number of concurrent producers
+     */
+    private final static int PRODUCERS = 8;
+
+    /**
+     * Number of out calls of every producer
+     */
+    private final static int OUTS = 250;
+
+    /**
+     * Template matching every (Integer, Integer) tuple
+     */
+    private final static ITuple TEMPLATE = new Tuple(Field.of(Integer.class), Field.of(Integer.class));
+
+    /**
+     * The space under test
+     */
+    private ITupleSpace tupleSpace;
+
+    @BeforeEach
+    void setUp() {
+        this.tupleSpace = TupleSpaceFactory.create("batching-test",
+            new TupleSpaceConfiguration().withCapacity(PRODUCERS * OUTS).withMaxCalls(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TupleSpaceFactory.destroy("batching-test");
+    }
+
+    /**
+     * Concurrent out calls are all stored & carried by routing once, every call
+     * returns only once its tuple can be read & batches never outnumber the calls
+     */
+    @Test
+    void storesEveryConcurrentOut() throws Exception {
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> calls = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            calls.add(producers.submit(() -> {
+                start.await();
+                boolean stored = true;
+                for (int i = 0; i < OUTS; i++) {
+                    this.tupleSpace.out(tuple(producer, i));
+                    stored &= this.tupleSpace.count(new Tuple(Field.of(Integer.class, producer), Field.of(Integer.class, i))) == 1;
+                }
+                return stored;
+            }));
+        }
+        start.countDown();
+        for (Future<Boolean> call : calls) {
+            assertTrue(call.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        producers.shutdown();
+
+        assertEquals(PRODUCERS * OUTS, this.tupleSpace.count(TEMPLATE));
+        assertEquals(PRODUCERS * OUTS, this.tupleSpace.routing().messagesIds().size());
+        assertEquals(PRODUCERS * OUTS, metric("tuples.inserted"));
+        long batches = metric("out.batch.size.count");
+        assertTrue(batches > 0 && batches <= PRODUCERS * OUTS, "batches " + batches);
+    }
+
+    /**
+     * The tuples of an outMany call are inserted at once & handed to the calls waiting for them
+     */
+    @Test
+    void handsBatchedTuplesToWaitingCalls() throws Exception {
+        List<Future<ITuple>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(this.tupleSpace.in(TEMPLATE));
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (metric("calls.waiting") != 5) {
+            assertTrue(System.currentTimeMillis() < deadline, "calls never waited");
+            Thread.sleep(5);
+        }
+
+        this.tupleSpace.outMany(tuple(0, 0), tuple(0, 1), tuple(0, 2), tuple(0, 3), tuple(0, 4), tuple(0, 5));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, calls.get(i).get(TIMEOUT, TimeUnit.MILLISECONDS).get(1).element());
+        }
+        assertEquals(1, this.tupleSpace.count(TEMPLATE));
+        assertEquals(1L, metric("out.batch.size.count"));
+        assertEquals(1, this.tupleSpace.routing().messagesIds().size());
+    }
+
+    /**
+     * Build a (producer, i) tuple that doesn't expire
+     * @param producer The producer of the tuple
+     * @param i The number of the tuple within its producer
+     * @return The tuple
+     */
+    private static ITuple tuple(int producer, int i) {
+        return new Tuple(Long.MAX_VALUE, Field.of(Integer.class, producer), Field.of(Integer.class, i));
+    }
+
+    /**
+     * Return the current value of the given metric of the space
+     * @param name The name of the metric
+     * @return The value of the metric
+     */
+    private long metric(String name) {
+        return this.tupleSpace.metrics().snapshot().get(name);
+    }
+
+}
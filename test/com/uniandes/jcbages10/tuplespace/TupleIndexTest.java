@@ -0,0 +1,163 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TupleIndexTest {
+
+    /**
+     * Max time in milliseconds to wait for calls to be resolved
+     */
+    private final static long TIMEOUT = 5000;
+
+    /**
+     * The index under test, of the first field of (Integer, String) tuples
+     */
+    private TupleIndex index;
+
+    /**
+     * The space under test, indexing the same field
+     */
+    private ITupleSpace tupleSpace;
+
+    @BeforeEach
+    void setUp() {
+        this.index = new TupleIndex(Map.of(List.of(Integer.class, String.class), Set.of(0)));
+        this.tupleSpace = TupleSpaceFactory.create("index-test",
+            new TupleSpaceConfiguration().withCapacity(100).withIndexedField(0, Integer.class, String.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TupleSpaceFactory.destroy("index-test");
+    }
+
+    /**
+     * Actual templates get the positions of the tuples holding their element
+     * & of the tuples holding a formal in the indexed field
+     */
+    @Test
+    void looksUpActualFieldsAndStoredFormals() {
+        for (int i = 0; i < 10; i++) {
+            this.index.add(tuple(i % 3, "t" + i), i);
+        }
+        this.index.add(new Tuple(Long.MAX_VALUE, Field.of(Integer.class), Field.of(String.class, "formal")), 10);
+
+        assertEquals(Set.of(1, 4, 7, 10), positions(template(Field.of(Integer.class, 1))));
+        assertEquals(Set.of(10), positions(template(Field.of(Integer.class, 5))));
+    }
+
+    /**
+     * Range templates get the positions of the tuples within the range only
+     */
+    @Test
+    void looksUpRanges() {
+        for (int i = 0; i < 10; i++) {
+            this.index.add(tuple(i, "t" + i), i);
+        }
+
+        assertEquals(Set.of(3, 4, 5, 6), positions(template(RangeField.between(Integer.class, 3, 6))));
+        assertEquals(Set.of(8, 9), positions(template(RangeField.greaterThan(Integer.class, 7))));
+        assertEquals(Set.of(), positions(template(RangeField.atLeast(Integer.class, 10))));
+    }
+
+    /**
+     * Removed tuples aren't candidates anymore
+     */
+    @Test
+    void forgetsRemovedTuples() {
+        this.index.add(tuple(1, "a"), 0);
+        this.index.add(tuple(1, "b"), 1);
+
+        this.index.remove(tuple(1, "a"), 0);
+        assertEquals(Set.of(1), positions(template(Field.of(Integer.class, 1))));
+        this.index.remove(tuple(1, "b"), 1);
+        assertEquals(Set.of(), positions(template(Field.of(Integer.class, 1))));
+    }
+
+    /**
+     * Templates of other signatures, formal or predicate in the indexed field can't be looked up
+     */
+    @Test
+    void leavesOtherTemplatesToScans() {
+        this.index.add(tuple(1, "a"), 0);
+
+        assertFalse(this.index.candidates(new Tuple(Field.of(Integer.class, 1))).isPresent());
+        assertFalse(this.index.candidates(template(Field.of(Integer.class))).isPresent());
+        assertFalse(this.index.candidates(template(new PredicateField<>(Integer.class, i -> i > 0))).isPresent());
+        assertFalse(this.index.candidates(
+            new Tuple(Field.of(Integer.class, 1), Field.of(String.class), Field.of(Long.class))).isPresent());
+    }
+
+    /**
+     * Spaces serve indexed templates with the same matches as scans, stored formal
+     * fields match actual templates only, & tuples taken out are not found again
+     */
+    @Test
+    void servesIndexedTemplates() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            this.tupleSpace.out(tuple(i, "t" + i));
+        }
+        this.tupleSpace.out(new Tuple(Long.MAX_VALUE, Field.of(Integer.class), Field.of(String.class, "formal")));
+
+        ITuple result = this.tupleSpace.in(template(Field.of(Integer.class, 42))).get(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertEquals("t42", result.get(1).element());
+        assertEquals(1, this.tupleSpace.count(template(Field.of(Integer.class, 42))));
+        assertEquals("formal", this.tupleSpace.readAll(template(Field.of(Integer.class, 42))).get(0).get(1).element());
+        assertEquals(11, this.tupleSpace.count(template(RangeField.between(Integer.class, 10, 20))));
+        assertEquals(49, this.tupleSpace.count(template(Field.of(Integer.class))));
+    }
+
+    /**
+     * Only existing positions of comparable & final types can be indexed
+     */
+    @Test
+    void rejectsUnindexableFields() {
+        TupleSpaceConfiguration configuration = new TupleSpaceConfiguration();
+
+        assertThrows(IllegalArgumentException.class, () -> configuration.withIndexedField(2, Integer.class, String.class));
+        assertThrows(IllegalArgumentException.class, () -> configuration.withIndexedField(-1, Integer.class));
+        assertThrows(IllegalArgumentException.class, () -> configuration.withIndexedField(0, Object.class));
+        assertThrows(IllegalArgumentException.class, () -> configuration.withIndexedField(0, Integer.class, null));
+        assertEquals(Set.of(0, 1), configuration.withIndexedField(0, Integer.class, String.class)
+            .withIndexedField(1, Integer.class, String.class)
+            .indexedFields().get(List.of(Integer.class, String.class)));
+    }
+
+    /**
+     * Return the candidates of the index for the given template, as a set
+     * @param template The template to look up
+     * @return The candidate positions
+     */
+    private Set<Integer> positions(ITuple template) {
+        Set<Integer> positions = new HashSet<>();
+        this.index.candidates(template).orElseThrow().forEach(positions::add);
+        return positions;
+    }
+
+    /**
+     * Build an (Integer, String) tuple that doesn't expire
+     * @param i The integer of the tuple
+     * @param s The string of the tuple
+     * @return The tuple
+     */
+    private static ITuple tuple(int i, String s) {
+        return new Tuple(Long.MAX_VALUE, Field.of(Integer.class, i), Field.of(String.class, s));
+    }
+
+    /**
+     * Build an (Integer, String) template with the given first field & a formal string
+     * @param field The first field of the template
+     * @return The template
+     */
+    private static ITuple template(IField field) {
+        return new Tuple(field, Field.of(String.class));
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.uniandes.jcbages10.tuplespace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TupleSpaceWaitersTest {
+
+    /**
+     * Max time in milliseconds to wait for calls to be queued or resolved
+     */
+    private final static long TIMEOUT = 5000;
+
+    /**
+     * Template matching every (Integer) tuple
+     */
+    private final static ITuple TEMPLATE = new Tuple(Field.of(Integer.class));
+
+    /**
+     * The space under test
+     */
+    private ITupleSpace tupleSpace;
+
+    @BeforeEach
+    void setUp() {
+        this.tupleSpace = TupleSpaceFactory.create("waiters-test",
+            new TupleSpaceConfiguration().withCapacity(100).withMaxCalls(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TupleSpaceFactory.destroy("waiters-test");
+    }
+
+    /**
+     * Blocked in calls get the inserted tuples in the order they were submitted
+     */
+    @Test
+    void handsInsertedTuplesToInCallsInArrivalOrder() throws Exception {
+        List<Future<ITuple>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(this.tupleSpace.in(TEMPLATE));
+        }
+        awaitMetric("calls.waiting", 5);
+
+        for (int i = 0; i < 5; i++) {
+            this.tupleSpace.out(tuple(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, calls.get(i).get(TIMEOUT, TimeUnit.MILLISECONDS).get(0).element());
+        }
+        assertEquals(0, this.tupleSpace.count(TEMPLATE));
+        assertEquals(5L, metric("tuples.handed.off"));
+        assertEquals(0L, metric("calls.waiting"));
+    }
+
+    /**
+     * A read queued ahead of an in gets the tuple too, the in then removes it
+     */
+    @Test
+    void handsTheSameTupleToReadsQueuedAheadOfAnIn() throws Exception {
+        Future<ITuple> read = this.tupleSpace.read(TEMPLATE);
+        awaitMetric("calls.waiting", 1);
+        Future<ITuple> in = this.tupleSpace.in(TEMPLATE);
+        awaitMetric("calls.waiting", 2);
+
+        this.tupleSpace.out(tuple(7));
+        assertEquals(7, read.get(TIMEOUT, TimeUnit.MILLISECONDS).get(0).element());
+        assertEquals(7, in.get(TIMEOUT, TimeUnit.MILLISECONDS).get(0).element());
+        assertEquals(0, this.tupleSpace.count(TEMPLATE));
+    }
+
+    /**
+     * A read queued behind an in keeps waiting, the tuple was taken first
+     */
+    @Test
+    void keepsReadsQueuedBehindAnInWaiting() throws Exception {
+        Future<ITuple> in = this.tupleSpace.in(TEMPLATE);
+        awaitMetric("calls.waiting", 1);
+        Future<ITuple> read = this.tupleSpace.read(TEMPLATE);
+        awaitMetric("calls.waiting", 2);
+
+        this.tupleSpace.out(tuple(1));
+        assertEquals(1, in.get(TIMEOUT, TimeUnit.MILLISECONDS).get(0).element());
+        awaitMetric("calls.waiting", 1);
+        assertFalse(read.isDone());
+
+        this.tupleSpace.out(tuple(2));
+        assertEquals(2, read.get(TIMEOUT, TimeUnit.MILLISECONDS).get(0).element());
+        assertEquals(1, this.tupleSpace.count(TEMPLATE));
+    }
+
+    /**
+     * Cancelled calls leave the queue & free their slot, tuples inserted afterwards stay
+     */
+    @Test
+    void cancelledCallsLeaveTheQueue() throws Exception {
+        Future<ITuple> in = this.tupleSpace.in(TEMPLATE);
+        awaitMetric("calls.waiting", 1);
+
+        in.cancel(true);
+        awaitMetric("calls.waiting", 0);
+        awaitMetric("calls.unresolved", 0);
+
+        this.tupleSpace.out(tuple(3));
+        assertEquals(1, this.tupleSpace.count(TEMPLATE));
+        assertEquals(0L, metric("tuples.handed.off"));
+    }
+
+    /**
+     * Build an (Integer) tuple that doesn't expire
+     * @param i The element of the tuple
+     * @return The tuple
+     */
+    private static ITuple tuple(int i) {
+        return new Tuple(Long.MAX_VALUE, Field.of(Integer.class, i));
+    }
+
+    /**
+     * Return the current value of the given metric of the space
+     * @param name The name of the metric
+     * @return The value of the metric
+     */
+    private long metric(String name) {
+        return this.tupleSpace.metrics().snapshot().get(name);
+    }
+
+    /**
+     * Wait until the given metric of the space reaches the given value
+     * @param name The name of the metric
+     * @param value The expected value
+     */
+    private void awaitMetric(String name, long value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (metric(name) != value) {
+            assertTrue(System.currentTimeMillis() < deadline, name + " never reached " + value);
+            Thread.sleep(5);
+        }
+    }
+
+}